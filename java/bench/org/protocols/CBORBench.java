@@ -0,0 +1,143 @@
+/* Copyright (C) 2006-2008 Laurent A.V. Szyster
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of version 2 of the GNU Lesser General Public License as
+published by the Free Software Foundation.
+
+   http://www.gnu.org/copyleft/lesser.html
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+You should have received a copy of the GNU Lesser General Public License
+along with this library; if not, write to the Free Software Foundation, 
+Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA */
+
+package org.protocols;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Compare the encoding and decoding of the same document as JSON text, 
+ * with <code>JSON.Writer</code> and <code>JSON.Parser</code>, and as 
+ * CBOR, with <code>JSON.CBOR</code>.
+ * 
+ * @pre java org.protocols.CBORBench [records [rounds]]
+ * 
+ * @p The document is an array of records with integers, doubles, 
+ * decimals, strings, booleans, a null and a nested object and array, 
+ * generated from a fixed seed. Both paths write to the same reused
+ * <code>ByteBuffer</code> and read from a byte array. Each measure is the
+ * best of <code>rounds</code> runs after as many runs to warm up, and a
+ * decoded value is checked against the encoded one before timing.
+ */
+public class CBORBench {
+    
+    protected static JSON.Array document(int records, Random random) {
+        JSON.Array document = new JSON.Array();
+        for (int i = 0; i < records; i++) {
+            JSON.Object record = new JSON.Object();
+            record.put("id", Integer.valueOf(i));
+            record.put("time", Long.valueOf(1224000000000L + random.nextInt()));
+            record.put("value", Double.valueOf(random.nextDouble() * 1000));
+            record.put("price", BigDecimal.valueOf(random.nextInt(100000), 2));
+            record.put("name", "record " + Integer.toHexString(random.nextInt()));
+            record.put("active", Boolean.valueOf(random.nextBoolean()));
+            record.put("note", null);
+            JSON.Object point = new JSON.Object();
+            point.put("x", Integer.valueOf(random.nextInt(1000)));
+            point.put("y", Integer.valueOf(random.nextInt(1000)));
+            record.put("point", point);
+            JSON.Array tags = new JSON.Array();
+            for (int j = random.nextInt(4); j > 0; j--)
+                tags.add("tag" + random.nextInt(16));
+            record.put("tags", tags);
+            document.add(record);
+        }
+        return document;
+    }
+    
+    protected static interface Run {
+        public void run() throws Exception;
+    }
+    
+    protected static long best(int rounds, Run run) throws Exception {
+        for (int i = 0; i < rounds; i++)
+            run.run();
+        long best = Long.MAX_VALUE, t;
+        for (int i = 0; i < rounds; i++) {
+            t = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - t);
+        }
+        return best;
+    }
+    
+    protected static void report(String name, long nanos, int bytes) {
+        System.out.println(
+            name + "\t" + (nanos / 1000) + " us\t" + 
+            ((bytes * 1000L) / Math.max(nanos, 1)) + " MB/s"
+            );
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int records = (args.length > 0) ? Integer.parseInt(args[0]) : 10000;
+        int rounds = (args.length > 1) ? Integer.parseInt(args[1]) : 20;
+        final JSON.Array document = document(records, new Random(20081018L));
+        final ByteBuffer buffer = ByteBuffer.allocate(256 * records + 1024);
+        final JSON.Writer writer = new JSON.Writer(buffer);
+        
+        writer.write(document).flush();
+        final byte[] text = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(text);
+        buffer.clear();
+        JSON.CBOR.write(writer.open(buffer), document);
+        writer.flush();
+        final byte[] cbor = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(cbor);
+        
+        final int limit = 64 * records;
+        if (!JSON.encode(
+            new JSON.Parser(limit, limit).eval(text, 0, text.length)
+            ).equals(JSON.encode(document)))
+            throw new IllegalStateException("text round trip");
+        if (!JSON.encode(
+            new JSON.CBOR(limit, limit).read(cbor, 0, cbor.length)
+            ).equals(JSON.encode(document)))
+            throw new IllegalStateException("CBOR round trip");
+        
+        System.out.println(
+            records + " records, " + text.length + " bytes of text, " + 
+            cbor.length + " bytes of CBOR"
+            );
+        report("text encode", best(rounds, new Run() {
+            public void run() throws Exception {
+                buffer.clear();
+                writer.open(buffer).write(document).flush();
+            }
+        }), text.length);
+        report("CBOR encode", best(rounds, new Run() {
+            public void run() throws Exception {
+                buffer.clear();
+                JSON.CBOR.write(writer.open(buffer), document);
+                writer.flush();
+            }
+        }), cbor.length);
+        report("text decode", best(rounds, new Run() {
+            public void run() throws Exception {
+                new JSON.Parser(limit, limit).eval(text, 0, text.length);
+            }
+        }), text.length);
+        report("CBOR decode", best(rounds, new Run() {
+            public void run() throws Exception {
+                new JSON.CBOR(limit, limit).read(cbor, 0, cbor.length);
+            }
+        }), cbor.length);
+    }
+    
+}
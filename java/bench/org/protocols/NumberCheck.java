@@ -0,0 +1,143 @@
+/* Copyright (C) 2006-2008 Laurent A.V. Szyster
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of version 2 of the GNU Lesser General Public License as
+published by the Free Software Foundation.
+
+   http://www.gnu.org/copyleft/lesser.html
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+You should have received a copy of the GNU Lesser General Public License
+along with this library; if not, write to the Free Software Foundation, 
+Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA */
+
+package org.protocols;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Check the numbers scanned by <code>JSON.Parser</code> against the 
+ * conversions of the JDK, on random literals from a seeded generator.
+ * 
+ * @pre java org.protocols.NumberCheck [count [seed]]
+ * 
+ * @p Each literal is evaluated from a <code>String</code> and from UTF-8 
+ * bytes. Doubles must have the same bits than 
+ * <code>Double.parseDouble</code>, decimals and integers must be equal to 
+ * the <code>BigDecimal</code> and <code>BigInteger</code> of the literal.
+ * Random 64-bit mantissas and powers of ten are also converted by 
+ * <code>Parser.doubleValue</code>, and malformed literals must fail with a 
+ * <code>JSON.Error</code>. The first mismatch is printed and exits with 
+ * status 1.
+ */
+public class NumberCheck {
+    
+    protected static final String[] MALFORMED = new String[]{
+        "-", "--1", "1e", "1e+", "-e1", "1.e", "1E-"
+    };
+    
+    protected static String literal(Random random) {
+        StringBuilder sb = new StringBuilder();
+        if (random.nextBoolean())
+            sb.append('-');
+        int digits = 1 + random.nextInt(random.nextInt(8) == 0 ? 30 : 19);
+        sb.append((char) ('1' + random.nextInt(9)));
+        for (int i = 1; i < digits; i++)
+            sb.append((char) ('0' + random.nextInt(10)));
+        int kind = random.nextInt(4);
+        if (kind > 0 && random.nextBoolean()) {
+            sb.append('.');
+            int scale = 1 + random.nextInt(12);
+            for (int i = 0; i < scale; i++)
+                sb.append((char) ('0' + random.nextInt(10)));
+        }
+        if (kind > 1) {
+            sb.append(random.nextBoolean() ? 'e' : 'E');
+            int exponent = random.nextInt(680) - 360;
+            if (exponent >= 0 && random.nextBoolean())
+                sb.append('+');
+            sb.append(exponent);
+        }
+        return sb.toString();
+    }
+    
+    protected static boolean same(String literal, Object number) {
+        if (literal.indexOf('e') > -1 || literal.indexOf('E') > -1)
+            return number instanceof Double && (
+                Double.doubleToLongBits(((Double) number).doubleValue()) ==
+                Double.doubleToLongBits(Double.parseDouble(literal))
+                );
+        else if (literal.indexOf('.') > -1)
+            return number instanceof BigDecimal && 
+                number.equals(new BigDecimal(literal));
+        else
+            return new BigInteger(literal).equals(new BigInteger(
+                number.toString()
+                ));
+    }
+    
+    protected static boolean fail(String message) {
+        System.out.println(message);
+        System.exit(1);
+        return false;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        int count = (args.length > 0) ? Integer.parseInt(args[0]) : 1000000;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 20081018L;
+        Random random = new Random(seed);
+        JSON.Parser parser = new JSON.Parser();
+        String literal;
+        byte[] bytes;
+        int undecided = 0;
+        for (int i = 0; i < count; i++) {
+            literal = literal(random);
+            if (!same(literal, parser.eval(literal)))
+                fail("String " + literal + " " + parser.eval(literal));
+            bytes = literal.getBytes("US-ASCII");
+            if (!same(literal, parser.eval(bytes, 0, bytes.length)))
+                fail("UTF-8 " + literal);
+            
+            long mantissa = random.nextLong();
+            int power = random.nextInt(651) - 342;
+            double value = JSON.Parser.doubleValue(mantissa, power);
+            if (Double.isNaN(value)) {
+                undecided++;
+                continue;
+            }
+            double expected = new BigDecimal(
+                new BigInteger(Long.toUnsignedString(mantissa))
+                ).scaleByPowerOfTen(power).doubleValue();
+            if (value != expected)
+                fail(
+                    "doubleValue " + Long.toUnsignedString(mantissa) + 
+                    "e" + power + " " + value + " != " + expected
+                    );
+        }
+        for (int i = 0; i < MALFORMED.length; i++) {
+            try {
+                parser.eval(MALFORMED[i]);
+                fail("accepted " + MALFORMED[i]);
+            } catch (JSON.Error e) {
+                ;
+            }
+            bytes = MALFORMED[i].getBytes("US-ASCII");
+            try {
+                parser.eval(bytes, 0, bytes.length);
+                fail("accepted UTF-8 " + MALFORMED[i]);
+            } catch (JSON.Error e) {
+                ;
+            }
+        }
+        System.out.println(
+            count + " literals and mantissas checked with seed " + seed + 
+            ", " + undecided + " left to the fallback"
+            );
+    }
+    
+}
@@ -0,0 +1,107 @@
+/* Copyright (C) 2006-2008 Laurent A.V. Szyster
+
+This library is free software; you can redistribute it and/or modify
+it under the terms of version 2 of the GNU Lesser General Public License as
+published by the Free Software Foundation.
+
+   http://www.gnu.org/copyleft/lesser.html
+
+This library is distributed in the hope that it will be useful, but
+WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+
+You should have received a copy of the GNU Lesser General Public License
+along with this library; if not, write to the Free Software Foundation, 
+Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA */
+
+package org.protocols;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Compare the heap retained by small <code>JSON.Object</code>s with the
+ * one retained by <code>HashMap</code>s of the same members, the layout 
+ * <code>JSON.Object</code> inherited before it kept small objects in a
+ * compact array.
+ * 
+ * @pre java org.protocols.ObjectFootprint [objects]
+ * 
+ * @p For 1, 2, 4, 8, 9 and 16 members, it fills as many maps of each 
+ * kind as <code>objects</code> with the same names and values, shared by
+ * all maps, so that only the maps themselves are measured. The heap used
+ * is read after repeated collections, before and after the maps are
+ * allocated, and reported in bytes per map.
+ */
+public class ObjectFootprint {
+    
+    protected static interface Factory {
+        public Map create();
+    }
+    
+    protected static long used() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE, now;
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            now = runtime.totalMemory() - runtime.freeMemory();
+            used = Math.min(used, now);
+        }
+        return used;
+    }
+    
+    protected static long footprint(
+        int objects, int members, String[] names, Integer[] values, 
+        Factory factory
+        ) {
+        Map[] maps = new Map[objects];
+        long before = used();
+        for (int i = 0; i < objects; i++) {
+            Map map = factory.create();
+            for (int j = 0; j < members; j++)
+                map.put(names[j], values[j]);
+            maps[i] = map;
+        }
+        long after = used();
+        for (int i = 0; i < objects; i++)
+            if (maps[i].size() != members)
+                throw new IllegalStateException("size");
+        return (after - before) / objects;
+    }
+    
+    public static void main(String[] args) {
+        int objects = (args.length > 0) ? Integer.parseInt(args[0]) : 200000;
+        int[] sizes = new int[]{1, 2, 4, 8, 9, 16};
+        String[] names = new String[16];
+        Integer[] values = new Integer[16];
+        for (int j = 0; j < names.length; j++) {
+            names[j] = "member" + j;
+            values[j] = Integer.valueOf(j * 1000);
+        }
+        Factory hashed = new Factory() {
+            public Map create() {
+                return new HashMap();
+            }
+        };
+        Factory compact = new Factory() {
+            public Map create() {
+                return new JSON.Object();
+            }
+        };
+        footprint(objects, 4, names, values, hashed);
+        footprint(objects, 4, names, values, compact);
+        System.out.println(objects + " objects, bytes per object");
+        System.out.println("members\tHashMap\tJSON.Object");
+        for (int k = 0; k < sizes.length; k++) {
+            long h = footprint(objects, sizes[k], names, values, hashed);
+            long c = footprint(objects, sizes[k], names, values, compact);
+            System.out.println(sizes[k] + "\t" + h + "\t" + c);
+        }
+    }
+    
+}
@@ -17,19 +17,53 @@ Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA */
 package org.protocols; // less java for more applications
 
 import java.util.Map;
+import java.util.Set;
+import java.util.Collection;
 import java.util.List;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.AbstractMap;
+import java.util.ListIterator;
+import java.util.Spliterator;
+import java.util.AbstractSet;
+import java.util.AbstractCollection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
 import java.io.IOException;
 import java.net.URLDecoder;
 
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.NativeArray;
 import org.mozilla.javascript.NativeObject;
 import org.mozilla.javascript.NativeJavaObject;
@@ -57,7 +91,8 @@ import org.simple.Strings;
  * 
  * @p Note that the additional distinction between JSON number types is made 
  * by considering numbers with an exponent as Doubles, the ones with decimals 
- * as BigDecimal and the others as Integer.
+ * as BigDecimal and the others as Integer, promoted to Long or BigInteger 
+ * when they do not fit in 32 or 64 bits.
  * 
  * @h4 Safety Limits
  * 
@@ -173,7 +208,7 @@ public final class JSON {
             }
         
         public final StringBuilder toJSON(StringBuilder sb, String indent) {
-        	return toJSON(sb, null);
+        	return toJSON(sb);
         }
         
         /**
@@ -207,12 +242,197 @@ public final class JSON {
         public String toString() {
             StringBuilder sb = new StringBuilder();
             sb.append("JSON error ");
-            toJSON(sb, null);
+            toJSON(sb);
             return sb.toString(); 
         }
         
     }
     
+    /**
+     * A bounded table of canonical member names, looked up by their chars 
+     * before a <code>String</code> is instanciated so that the same names 
+     * repeated in a document or across documents are allocated once and 
+     * shared by all the maps that use them.
+     * 
+     * @h3 Synopsis
+     * 
+     * @pre JSON.Symbols symbols = new JSON.Symbols(1024);
+     *JSON.Parser parser = new JSON.Parser();
+     *parser.symbols = symbols;
+     *JSON.Array list = parser.array(bytes, 0, bytes.length);
+     *System.out.println(symbols.hits + " hits, " + symbols.misses + " misses");
+     * 
+     * @p Each parser has its own table by default, it may be shared by many 
+     * parsers, or set to <code>null</code> to disable interning. Names 
+     * longer than 64 characters are not interned and once the table is full 
+     * new names replace old ones. A table shared between threads 
+     * may lose entries and counts but never returns a wrong name.
+     */
+    public static class Symbols {
+        protected static final int MAX_LENGTH = 64;
+        protected static final int PROBES = 8;
+        /**
+         * The number of names found in the table.
+         */
+        public long hits = 0;
+        /**
+         * The number of names added or not interned.
+         */
+        public long misses = 0;
+        protected String[] table = null;
+        protected int capacity;
+        protected int size = 0;
+        
+        /**
+         * Instanciate a table of at most 4096 names.
+         */
+        public Symbols() {
+            this(4096);
+        }
+        
+        /**
+         * Instanciate a table of at most the given number of names, rounded
+         * up to a power of two.
+         * 
+         * @param capacity the maximum number of names held
+         */
+        public Symbols(int capacity) {
+            int c = 16;
+            while (c < capacity && c < (1 << 30)) 
+                c <<= 1;
+            this.capacity = c;
+        }
+        
+        /**
+         * Return the canonical name for the given chars.
+         * 
+         * @param chars to look up
+         * @param off the index of the first char
+         * @param len the number of chars
+         * @return a canonical <code>String</code>
+         */
+        public String intern(char[] chars, int off, int len) {
+            if (len > MAX_LENGTH) {
+                misses++;
+                return new String(chars, off, len);
+            }
+            int h = 0;
+            for (int i = off, n = off + len; i < n; i++)
+                h = 31 * h + chars[i];
+            String[] t = table;
+            if (t != null) {
+                String s;
+                int mask = t.length - 1, k = (h ^ (h >>> 16)) & mask;
+                for (int p = 0; p < PROBES; p++) {
+                    s = t[(k + p) & mask];
+                    if (s == null)
+                        break;
+                    else if (s.length() == len && s.hashCode() == h) {
+                        int i = 0;
+                        while (i < len && s.charAt(i) == chars[off + i]) 
+                            i++;
+                        if (i == len) {
+                            hits++;
+                            return s;
+                        }
+                    }
+                }
+            }
+            misses++;
+            return add(new String(chars, off, len), h);
+        }
+        
+        /**
+         * Return the canonical name for the given chars.
+         * 
+         * @param chars to look up
+         * @return a canonical <code>String</code>
+         */
+        public String intern(CharSequence chars) {
+            int len = chars.length();
+            if (len > MAX_LENGTH) {
+                misses++;
+                return chars.toString();
+            }
+            int h = 0;
+            for (int i = 0; i < len; i++)
+                h = 31 * h + chars.charAt(i);
+            String[] t = table;
+            if (t != null) {
+                String s;
+                int mask = t.length - 1, k = (h ^ (h >>> 16)) & mask;
+                for (int p = 0; p < PROBES; p++) {
+                    s = t[(k + p) & mask];
+                    if (s == null)
+                        break;
+                    else if (s.length() == len && s.hashCode() == h) {
+                        int i = 0;
+                        while (i < len && s.charAt(i) == chars.charAt(i)) 
+                            i++;
+                        if (i == len) {
+                            hits++;
+                            return s;
+                        }
+                    }
+                }
+            }
+            misses++;
+            return add(chars.toString(), h);
+        }
+        
+        /**
+         * Return the number of names held.
+         */
+        public int size() {
+            return size;
+        }
+        
+        /**
+         * Remove all names and reset the counters.
+         */
+        public void clear() {
+            table = null;
+            size = 0;
+            hits = misses = 0;
+        }
+        
+        protected final String add(String name, int h) {
+            String[] t = table;
+            if (t == null)
+                t = table = new String[16];
+            else if (size * 2 > t.length && t.length < capacity) 
+                t = table = grow(t);
+            int mask = t.length - 1, k = (h ^ (h >>> 16)) & mask, i;
+            for (int p = 0; p < PROBES; p++) {
+                i = (k + p) & mask;
+                if (t[i] == null) {
+                    t[i] = name;
+                    size++;
+                    return name;
+                }
+            }
+            t[k] = name;
+            return name;
+        }
+        
+        protected final String[] grow(String[] t) {
+            String[] grown = new String[t.length * 2];
+            String s;
+            int h, k, mask = grown.length - 1;
+            for (int i = 0; i < t.length; i++) {
+                s = t[i];
+                if (s == null)
+                    continue;
+                h = s.hashCode();
+                k = (h ^ (h >>> 16)) & mask;
+                while (grown[k] != null)
+                    k = (k + 1) & mask;
+                grown[k] = s;
+            }
+            return grown;
+        }
+    }
+    
     /**
 	 * A relatively strict JSON parser to evaluate a UNICODE string 
 	 * as a tree of basic Java instances with maximum limits on the number
@@ -319,13 +539,24 @@ public final class JSON {
 		protected static final String TRUE_EXPECTED = "true expected";
 		protected static final String CONTAINERS_OVERFLOW = "containers overflow";
 		protected static final String ITERATIONS_OVERFLOW = "iterations overflow";
+		protected static final String ILLEGAL_NUMBER = "illegal number";
 		protected static final java.lang.Object OBJECT = new java.lang.Object();
 		protected static final java.lang.Object ARRAY = new java.lang.Object();
 		protected static final java.lang.Object COLON = new java.lang.Object();
 		protected static final java.lang.Object COMMA = new java.lang.Object();
+		protected static final java.lang.Object SKIPPED = new java.lang.Object();
+		protected static final int EOF = -1;
+		protected static final int SCRATCH_LIMIT = 16384;
 		protected char c;
 		protected CharacterIterator it;
+		protected StringCharacterIterator text;
 		protected StringBuilder buf;
+		protected int b;
+		protected byte[] bytes;
+		protected int at;
+		protected int start;
+		protected int end;
+		protected char[] chars;
 		/**
 		 * The maximum number of containers left to instanciate by this parser. 
 		 */
@@ -334,6 +565,19 @@ public final class JSON {
 		 * The maximum number of iterations left to for this parser. 
 		 */
 		public int iterations = 65355;
+		/**
+		 * The table of canonical member names used by this parser, or 
+		 * <code>null</code> to instanciate a new string for each name.
+		 */
+		public Symbols symbols = new Symbols();
+		/**
+		 * The minimum length of the arrays of integers or doubles packed
+		 * in a <code>JSON.Numbers</code>, or 0 to never pack them, the
+		 * default.
+		 */
+		public int numbers = 0;
+		protected int maxContainers = 65355;
+		protected int maxIterations = 65355;
 
 		/**
 		 * Instanciate a JSON interpreter with limits set to 65355 on 
@@ -351,6 +595,22 @@ public final class JSON {
 		public Parser(int containers, int iterations) {
 		    this.containers = (containers > 0 ? containers: 1);
 		    this.iterations = (iterations > 0 ? iterations: 1);
+		    this.maxContainers = this.containers;
+		    this.maxIterations = this.iterations;
+		}
+
+		/**
+		 * Restore the limits on containers and iterations set when this 
+		 * parser was instanciated, so that it can evaluate another series
+		 * of JSON strings without allocating new scratch buffers.
+		 * 
+		 * @p The buffers used to decode string literals are kept between
+		 * evaluations unless they grew beyond 16384 characters, the symbols
+		 * table is kept too.
+		 */
+		public void reset() {
+		    containers = maxContainers;
+		    iterations = maxIterations;
 		}
 
 		/**
@@ -370,8 +630,7 @@ public final class JSON {
 		 * @throws JSON.Error
 		 */
 		public java.lang.Object eval(String json) throws Error {
-		    buf = new StringBuilder();
-		    it = new StringCharacterIterator(json);
+		    begin(json);
 		    try {
 		        c = it.first();
 		        if (c == JSON._done)
@@ -379,8 +638,7 @@ public final class JSON {
 		        else
 		            return value();
 		    } finally {
-		        buf = null;
-		        it = null;
+		        release();
 		    }
 		}
 
@@ -416,7 +674,7 @@ public final class JSON {
 		    JSON.Array a = new JSON.Array();
 		    Error e = extend(a, json);
 		    if (e == null)
-		        return a;
+		        return (JSON.Array) pack(a);
 		    else
 		        throw e;
 		}
@@ -431,8 +689,7 @@ public final class JSON {
 		 * @return <code>null</code> or a <code>JSON.Error</code>
 		 */
 		public Error update(Map map, String json) {
-		    buf = new StringBuilder();
-		    it = new StringCharacterIterator(json);
+		    begin(json);
 		    try {
 		        c = it.first();
 		        while (Character.isWhitespace(c)) c = it.next();
@@ -443,8 +700,7 @@ public final class JSON {
 		    } catch (Error e) {
 		        return e;
 		    } finally {
-		        buf = null;
-		        it = null;
+		        release();
 		    }
 		}
 
@@ -458,8 +714,7 @@ public final class JSON {
 		 * @return <code>null</code> or a <code>JSON.Error</code>
 		 */
 		public Error extend(List list, String json) {
-		    buf = new StringBuilder();
-		    it = new StringCharacterIterator(json);
+		    begin(json);
 		    try {
 		        c = it.first();
 		        while (Character.isWhitespace(c)) c = it.next();
@@ -470,8 +725,479 @@ public final class JSON {
 		    } catch (Error e) {
 		        return e;
 		    } finally {
-		        buf = null;
-		        it = null;
+		        release();
+		    }
+		}
+
+		/**
+		 * Evaluates UTF-8 encoded JSON bytes as an untyped value, without
+		 * decoding them to a <code>String</code> first, or throws a
+		 * <code>JSON.Error</code> with the byte index at which a syntax
+		 * error occured, relative to <code>off</code>.
+		 *
+		 * @pre byte[] body = Bytes.encode("{\"pass\": true}", Bytes.UTF8);
+		 *java.lang.Object value = (new JSON.Parser()).eval(body, 0, body.length);
+		 *
+		 * @p Only string literals are decoded, malformed UTF-8 sequences
+		 * are replaced by <code>U+FFFD</code> and whitespaces are limited
+		 * to the ASCII ones.
+		 *
+		 * @param json bytes to evaluate
+		 * @param off position of the first byte to evaluate
+		 * @param len number of bytes to evaluate
+		 * @return an untyped Object
+		 * @throws JSON.Error
+		 */
+		public java.lang.Object eval(byte[] json, int off, int len)
+		throws Error {
+		    begin(json, off, len);
+		    try {
+		        if (b == EOF)
+		            throw utf8Error(NULL_JSON_STRING);
+		        else
+		            return utf8Value();
+		    } finally {
+		        release();
+		    }
+		}
+
+		/**
+		 * Evaluates the remaining UTF-8 encoded bytes of a buffer as an
+		 * untyped value and advance its position past that value, or throws
+		 * a <code>JSON.Error</code> and leave the buffer position unchanged.
+		 *
+		 * @p Heap buffers are evaluated in place, direct ones are copied in
+		 * a byte array first.
+		 *
+		 * @param json <code>ByteBuffer</code> to evaluate
+		 * @return an untyped Object
+		 * @throws JSON.Error
+		 */
+		public java.lang.Object eval(ByteBuffer json) throws Error {
+		    java.lang.Object value;
+		    if (json.hasArray()) {
+		        int base = json.arrayOffset();
+		        value = eval(json.array(), base + json.position(), json.remaining());
+		        json.position(at - base);
+		    } else {
+		        byte[] copy = new byte[json.remaining()];
+		        json.duplicate().get(copy);
+		        value = eval(copy, 0, copy.length);
+		        json.position(json.position() + at);
+		    }
+		    return value;
+		}
+
+		/**
+		 * Evaluates UTF-8 encoded JSON bytes as an object, returns a new
+		 * <code>JSON.Object</code> or throws a <code>JSON.Error</code>.
+		 *
+		 * @param json bytes to evaluate
+		 * @param off position of the first byte to evaluate
+		 * @param len number of bytes to evaluate
+		 * @return a new <code>JSON.Object</code>
+		 * @throws JSON.Error
+		 */
+		public JSON.Object object(byte[] json, int off, int len) throws Error {
+		    JSON.Object o = new JSON.Object();
+		    Error e = update(o, json, off, len);
+		    if (e == null)
+		        return o;
+		    else
+		        throw e;
+		}
+
+		/**
+		 * Evaluates UTF-8 encoded JSON bytes as an array, returns a new
+		 * <code>JSON.Array</code> or throws a <code>JSON.Error</code>.
+		 *
+		 * @param json bytes to evaluate
+		 * @param off position of the first byte to evaluate
+		 * @param len number of bytes to evaluate
+		 * @return a new <code>JSON.Array</code>
+		 * @throws JSON.Error
+		 */
+		public JSON.Array array(byte[] json, int off, int len) throws Error {
+		    JSON.Array a = new JSON.Array();
+		    Error e = extend(a, json, off, len);
+		    if (e == null)
+		        return (JSON.Array) pack(a);
+		    else
+		        throw e;
+		}
+
+		/**
+		 * The minimum number of bytes of an array slice decoded by one task.
+		 */
+		public static int sliceSize = 65536;
+
+		/**
+		 * Evaluates UTF-8 encoded JSON bytes that represent a large array,
+		 * decoding slices of its elements concurrently on a fork-join pool,
+		 * returns a new <code>JSON.Array</code> of all elements in order or 
+		 * throws a <code>JSON.Error</code>.
+		 *
+		 * @pre JSON.Array rows = (new JSON.Parser()).array(
+		 *    body, 0, body.length, ForkJoinPool.commonPool()
+		 *    );
+		 *
+		 * @p A first scan of the bytes only counts brackets outside of
+		 * strings to find the commas between elements of the array, it
+		 * splits the array in slices of at least <code>sliceSize</code>
+		 * bytes, four slices for each worker of the pool. The range of 
+		 * slices is then split in halves, one forked and the other 
+		 * decoded by the same worker, and their elements are joined in 
+		 * order, so idle workers steal the slices left and the array is
+		 * assembled without any other synchronization.
+		 *
+		 * @p The limits of this parser are a budget shared by all tasks,
+		 * each task checks its slice against what is left of the budget
+		 * and charges it when done. So the evaluation fails if and only
+		 * if the whole array exceeds the limits, the limits left are set
+		 * back on this parser after evaluation, as they would be after a
+		 * sequential one. The first error in document order is thrown,
+		 * its index is relative to <code>off</code>.
+		 *
+		 * @p Arrays too small to be split are evaluated sequentially by
+		 * this thread.
+		 *
+		 * @param json bytes to evaluate
+		 * @param off position of the first byte to evaluate
+		 * @param len number of bytes to evaluate
+		 * @param pool the fork-join pool of the slice tasks
+		 * @return a new <code>JSON.Array</code>
+		 * @throws JSON.Error
+		 */
+		public JSON.Array array(
+		    byte[] json, int off, int len, ForkJoinPool pool
+		    ) throws Error {
+		    int slices = 4 * pool.getParallelism();
+		    int[] bounds = slices(
+		        json, off, len, Math.max(sliceSize, len / slices)
+		        );
+		    if (bounds.length < 5)
+		        return array(json, off, len);
+
+		    if (--containers < 0)
+		        throw new JSON.Error(CONTAINERS_OVERFLOW, bounds[0] + 1 - off);
+
+		    Slice task = new Slice();
+		    task.bytes = json;
+		    task.off = off;
+		    task.len = len;
+		    task.bounds = bounds;
+		    task.first = 0;
+		    task.last = bounds.length / 2;
+		    task.containers = new AtomicInteger(containers);
+		    task.iterations = new AtomicInteger(iterations);
+		    task.numbers = numbers;
+		    try {
+		        return (JSON.Array) pack(pool.invoke(task));
+		    } catch (RuntimeException e) {
+		        for (Throwable t = e; t != null; t = t.getCause())
+		            if (t instanceof JSON.Error)
+		                throw (JSON.Error) t;
+		        throw new JSON.Error(e.toString(), 0);
+		    } finally {
+		        containers = Math.max(task.containers.get(), 0);
+		        iterations = Math.max(task.iterations.get(), 0);
+		    }
+		}
+
+		/**
+		 * Pack an array of at least <code>numbers</code> elements in a 
+		 * <code>JSON.Numbers</code> if they are all of the same type.
+		 */
+		protected final java.lang.Object pack(java.lang.Object array) {
+		    if (numbers > 0 && ((JSON.Array) array).size() >= numbers)
+		        return Numbers.pack((JSON.Array) array);
+
+		    return array;
+		}
+
+		/**
+		 * Scan an array for the commas between its elements, return the
+		 * positions of the opening bracket and of commas at least 
+		 * <code>size</code> bytes apart, each followed by the index of the
+		 * next element, ending with the position of the closing bracket.
+		 */
+		protected static final int[] slices(
+		    byte[] in, int off, int len, int size
+		    ) throws Error {
+		    int i = off, n = off + len, x, depth = 0, count = 0, k = 2;
+		    while (i < n && (
+		        (x = in[i]) == ' ' || (x > 8 && x < 14) || (x > 27 && x < 32)
+		        )) i++;
+		    if (i == n || in[i] != '[')
+		        throw new JSON.Error(ARRAY_TYPE_ERROR, i - off);
+
+		    int[] bounds = new int[16];
+		    bounds[0] = i;
+		    for (i++; i < n; i++) {
+		        x = in[i];
+		        if (x == '"') {
+		            for (i++; i < n && (x = in[i]) != '"'; i++)
+		                if (x == '\\')
+		                    i++;
+		        } else if (x == '{' || x == '[')
+		            depth++;
+		        else if (x == '}' || x == ']') {
+		            if (depth-- > 0)
+		                continue;
+
+		            if (x == '}')
+		                throw new JSON.Error(VALUE_EXPECTED, i + 1 - off);
+
+		            if (k == bounds.length) {
+		                int[] grown = new int[k + 1];
+		                System.arraycopy(bounds, 0, grown, 0, k);
+		                bounds = grown;
+		            }
+		            bounds[k++] = i;
+		            if (k < bounds.length) {
+		                int[] trimmed = new int[k];
+		                System.arraycopy(bounds, 0, trimmed, 0, k);
+		                bounds = trimmed;
+		            }
+		            return bounds;
+		        } else if (x == ',' && depth == 0) {
+		            count++;
+		            if (i - bounds[k - 2] >= size) {
+		                if (k + 2 > bounds.length) {
+		                    int[] grown = new int[bounds.length * 2];
+		                    System.arraycopy(bounds, 0, grown, 0, k);
+		                    bounds = grown;
+		                }
+		                bounds[k++] = i;
+		                bounds[k++] = count;
+		            }
+		        }
+		    }
+		    throw new JSON.Error(UNEXPECTED_END, len);
+		}
+
+		/**
+		 * Decode the elements of the slices <code>first</code> to 
+		 * <code>last</code> of an array, forking half of them when there 
+		 * are more than one. A <code>JSON.Error</code> is thrown wrapped in 
+		 * a <code>RuntimeException</code>, the error of the left half first.
+		 */
+		protected static final class Slice extends RecursiveTask {
+		    protected byte[] bytes;
+		    protected int off;
+		    protected int len;
+		    protected int[] bounds;
+		    protected int first;
+		    protected int last;
+		    protected AtomicInteger containers;
+		    protected AtomicInteger iterations;
+		    protected int numbers;
+		    protected final Slice half(int first, int last) {
+		        Slice task = new Slice();
+		        task.bytes = bytes;
+		        task.off = off;
+		        task.len = len;
+		        task.bounds = bounds;
+		        task.first = first;
+		        task.last = last;
+		        task.containers = containers;
+		        task.iterations = iterations;
+		        task.numbers = numbers;
+		        return task;
+		    }
+		    protected final java.lang.Object compute() {
+		        if (last - first == 1)
+		            try {
+		                return decode(
+		                    bounds[2 * first] + 1, bounds[2 * first + 2], 
+		                    bounds[2 * first + 1], last == bounds.length / 2
+		                    );
+		            } catch (JSON.Error e) {
+		                throw new RuntimeException(e);
+		            }
+
+		        int middle = (first + last) >>> 1;
+		        Slice left = half(first, middle);
+		        left.fork();
+		        List right;
+		        try {
+		            right = (List) half(middle, last).compute();
+		        } catch (RuntimeException e) {
+		            left.join();
+		            throw e;
+		        }
+		        JSON.Array a = (JSON.Array) left.join();
+		        a.addAll(right);
+		        return a;
+		    }
+		    protected final JSON.Array decode(
+		        int from, int to, int index, boolean closing
+		        ) throws Error {
+		        Parser parser = new Parser(
+		            containers.get(), iterations.get()
+		            );
+		        parser.numbers = numbers;
+		        int allowedContainers = parser.containers;
+		        int allowedIterations = parser.iterations;
+		        JSON.Array a = new JSON.Array();
+		        parser.begin(bytes, off, len);
+		        parser.end = to;
+		        parser.at = from;
+		        parser.b = (from < to) ? bytes[from] & 0xff : EOF;
+		        try {
+		            int i = index;
+		            java.lang.Object token;
+		            parser.utf8Whitespace();
+		            while (parser.b != EOF) {
+		                token = parser.utf8Value(i);
+		                if (token==COLON || token==COMMA || token==OBJECT || token==ARRAY)
+		                    throw parser.utf8Error(VALUE_EXPECTED);
+
+		                if (--parser.iterations < 0)
+		                    throw parser.utf8Error(ITERATIONS_OVERFLOW);
+
+		                a.add(token);
+		                parser.utf8Whitespace();
+		                if (parser.b == ',') {
+		                    parser.read();
+		                    parser.utf8Whitespace();
+		                    if (parser.b == EOF && !closing)
+		                        throw parser.utf8Error(VALUE_EXPECTED);
+
+		                    i++;
+		                }
+		            }
+		            if (containers.addAndGet(
+		                parser.containers - allowedContainers
+		                ) < 0)
+		                throw parser.utf8Error(CONTAINERS_OVERFLOW);
+
+		            if (iterations.addAndGet(
+		                parser.iterations - allowedIterations
+		                ) < 0)
+		                throw parser.utf8Error(ITERATIONS_OVERFLOW);
+
+		            return a;
+		        } finally {
+		            parser.release();
+		        }
+		    }
+		}
+
+		/**
+		 * Evaluates UTF-8 encoded JSON bytes and update a <code>Map</code>,
+		 * return <code>null</code> or a <code>JSON.Error</code> if the bytes
+		 * do not represent a valid object.
+		 *
+		 * @param map the <code>Map</code> to update
+		 * @param json bytes to evaluate
+		 * @param off position of the first byte to evaluate
+		 * @param len number of bytes to evaluate
+		 * @return <code>null</code> or a <code>JSON.Error</code>
+		 */
+		public Error update(Map map, byte[] json, int off, int len) {
+		    begin(json, off, len);
+		    try {
+		        utf8Whitespace();
+		        if (b == '{') {
+		            read(); utf8Object(map); return null;
+		        } else
+		            return utf8Error(OBJECT_TYPE_ERROR);
+		    } catch (Error e) {
+		        return e;
+		    } finally {
+		        release();
+		    }
+		}
+
+		/**
+		 * Evaluates UTF-8 encoded JSON bytes and extends a <code>List</code>,
+		 * return <code>null</code> or a <code>JSON.Error</code> if the bytes
+		 * do not represent a valid array.
+		 *
+		 * @param list the <code>List</code> to extend
+		 * @param json bytes to evaluate
+		 * @param off position of the first byte to evaluate
+		 * @param len number of bytes to evaluate
+		 * @return <code>null</code> or a <code>JSON.Error</code>
+		 */
+		public Error extend(List list, byte[] json, int off, int len) {
+		    begin(json, off, len);
+		    try {
+		        utf8Whitespace();
+		        if (b == '[') {
+		            read(); utf8Array(list); return null;
+		        } else
+		            return utf8Error(ARRAY_TYPE_ERROR);
+		    } catch (Error e) {
+		        return e;
+		    } finally {
+		        release();
+		    }
+		}
+
+		/**
+		 * Index UTF-8 encoded JSON bytes with a <code>JSON.Tape</code> and 
+		 * return a lazy view of the object they represent or throws a 
+		 * <code>JSON.Error</code> if its structure is not valid.
+		 *
+		 * @p Use it to access a few members of large objects, those 
+		 * members are decoded only when accessed.
+		 *
+		 * @param json bytes to index
+		 * @param off position of the first byte to index
+		 * @param len number of bytes to index
+		 * @return a lazy <code>JSON.Object</code>
+		 * @throws JSON.Error
+		 */
+		public JSON.Object lazy(byte[] json, int off, int len) throws Error {
+		    int i = off;
+		    int x;
+		    while (i < off + len && (
+		        (x = json[i]) == ' ' || (x > 8 && x < 14) || (x > 27 && x < 32)
+		        )) i++;
+		    if (i == off + len || json[i] != '{')
+		        throw new JSON.Error(OBJECT_TYPE_ERROR, i - off);
+
+		    Tape tape = new Tape(json, off, len);
+		    tape.scan(this);
+		    return new Lazy(tape, 0);
+		}
+
+		/**
+		 * Evaluates UTF-8 encoded JSON bytes as a sparse tree of only the 
+		 * values selected by a projection, skipping all others without 
+		 * instanciating their strings or numbers, or throws a 
+		 * <code>JSON.Error</code>.
+		 *
+		 * @p Containers on a selected path are kept even when none of their
+		 * members is selected, arrays keep only their selected elements in
+		 * order and scalars found where a container is expected are left 
+		 * out. Skipped values are not charged on the limits and only checked
+		 * for balanced brackets and closed strings.
+		 *
+		 * @param paths the projection to select
+		 * @param json bytes to evaluate
+		 * @param off position of the first byte to evaluate
+		 * @param len number of bytes to evaluate
+		 * @return a <code>JSON.Object</code>, a <code>JSON.Array</code>, 
+		 * any value if the projection includes the empty path or 
+		 * <code>null</code>
+		 * @throws JSON.Error
+		 */
+		public java.lang.Object project(
+		    Projection paths, byte[] json, int off, int len
+		    ) throws Error {
+		    begin(json, off, len);
+		    try {
+		        utf8Whitespace();
+		        if (b == EOF)
+		            throw utf8Error(NULL_JSON_STRING);
+		        
+		        java.lang.Object value = utf8Project(paths);
+		        return (value == SKIPPED) ? null : value;
+		    } finally {
+		        release();
 		    }
 		}
 
@@ -488,7 +1214,7 @@ public final class JSON {
 		    while (Character.isWhitespace(c)) c = it.next();
 		    switch(c){
 		    case '{': {c = it.next(); return object(new JSON.Object());}
-		    case '[': {c = it.next(); return array(new JSON.Array());}
+		    case '[': {c = it.next(); return pack(array(new JSON.Array()));}
 		    case '"': {c = it.next(); return string();}
 		    case '0': case '1': case '2': case '3': case '4':  
 		    case '5': case '6': case '7': case '8': case '9': 
@@ -548,7 +1274,7 @@ public final class JSON {
 		    
 		    String name; 
 		    java.lang.Object val;
-		    java.lang.Object token = value();
+		    java.lang.Object token = name();
 		    while (token != OBJECT) {
 		        if (!(token instanceof String))
 		            throw error(STRING_EXPECTED);
@@ -565,7 +1291,7 @@ public final class JSON {
 		            o.put(name, val);
 		            token = value();
 		            if (token == COMMA)
-		                token = value();
+		                token = name();
 		        } else {
 		            throw error(COLON_EXPECTED);
 		        }
@@ -594,38 +1320,94 @@ public final class JSON {
 		    return a;
 		}
 
-		protected final java.lang.Object number() {
-		    buf.setLength(0);
-		    if (c == '-') {
-		        buf.append(c); c = it.next();
+		/**
+		 * Scan a number literal, accumulating its digits in a 
+		 * <code>long</code> instead of copying them in a string buffer. 
+		 * Literals that do not fit or are malformed fall back on the 
+		 * string constructors, a literal they refuse is reported as a
+		 * <code>JSON.Error</code>. 
+		 */
+		protected final java.lang.Object number() throws Error {
+		    int mark = it.getIndex(), kind = INTEGER_LITERAL; 
+		    int digits = 0, scale = 0, exponent = 0;
+		    long mantissa = 0;
+		    boolean negative = (c == '-'), exact = true;
+		    if (negative) 
+		        c = it.next();
+		    while (c >= '0' && c <= '9') {
+		        if (mantissa <= MANTISSA_LIMIT)
+		            mantissa = mantissa * 10 + (c - '0');
+		        else
+		            exact = false;
+		        digits++; c = it.next();
 		    }
-		    digits();
 		    if (c == '.') {
-		        buf.append(c); c = it.next();
-		        digits();
-		        if (c == 'e' || c == 'E') {
-		            buf.append(c); c = it.next();
-		            if (c == '+' || c == '-') {
-		                buf.append(c); c = it.next();
-		            }
-		            digits();
-		            return new Double(buf.toString());
-		        } else {
-		            return new BigDecimal(buf.toString()); 
+		        kind = DECIMAL_LITERAL; c = it.next();
+		        while (c >= '0' && c <= '9') {
+		            if (mantissa <= MANTISSA_LIMIT)
+		                mantissa = mantissa * 10 + (c - '0');
+		            else
+		                exact = false;
+		            digits++; scale++; c = it.next();
 		        }
-		    } else if (c == 'e' || c == 'E') {
-		        buf.append(c); c = it.next();
-		        if (c == '+' || c == '-') {
-		            buf.append(c); c = it.next();
+		    }
+		    if (c == 'e' || c == 'E') {
+		        kind = DOUBLE_LITERAL; c = it.next();
+		        boolean minus = (c == '-');
+		        if (minus || c == '+') 
+		            c = it.next();
+		        if (c < '0' || c > '9')
+		            exact = false;
+		        while (c >= '0' && c <= '9') {
+		            if (exponent < EXPONENT_LIMIT)
+		                exponent = exponent * 10 + (c - '0');
+		            c = it.next();
 		        }
-		        digits();
-		        return new Double(buf.toString());
-		    } else {
-		        return new Integer(buf.toString());
+		        if (minus)
+		            exponent = -exponent;
+		    }
+		    if (exact && digits > 0) {
+		        java.lang.Object n = number(
+		            kind, negative, mantissa, exponent - scale
+		            );
+		        if (n != null)
+		            return n;
+		    }
+		    int stop = it.getIndex();
+		    buf.setLength(0);
+		    for (char ch = it.setIndex(mark); it.getIndex() < stop; ch = it.next())
+		        buf.append(ch);
+		    it.setIndex(stop);
+		    try {
+		        return number(buf.toString());
+		    } catch (NumberFormatException e) {
+		        throw error(ILLEGAL_NUMBER);
 		    }
 		}
 
 		protected final java.lang.Object string() throws Error {
+		    unescape();
+		    return buf.toString();
+		}
+
+		/**
+		 * Unescape a string literal that is a member name in the buffer and 
+		 * return its canonical instance if a symbol table is set. 
+		 */
+		protected final String symbol() throws Error {
+		    unescape();
+		    return (symbols == null) ? buf.toString() : symbols.intern(buf);
+		}
+
+		protected final java.lang.Object name() throws Error {
+		    while (Character.isWhitespace(c)) c = it.next();
+		    if (c == '"') {
+		        c = it.next(); return symbol();
+		    }
+		    return value();
+		}
+
+		protected final void unescape() throws Error {
 		    buf.setLength(0);
 		    while (c != '"') {
 		        if (c == '\\') {
@@ -652,11 +1434,6 @@ public final class JSON {
 		        c = it.next();
 		    }
 		    c = it.next();
-		    return buf.toString();
-		}
-
-		protected final void digits() {
-		    while (Character.isDigit(c)) {buf.append(c); c = it.next();}
 		}
 
 		protected final char unicode(int length) throws Error {
@@ -669,10 +1446,10 @@ public final class JSON {
 		            val = (val << 4) + c - '0';
 		            break;
 		        case 'a': case 'b': case 'c': case 'd': case 'e': case 'f':
-		            val = (val << 4) + c - 'k';
+		            val = (val << 4) + c - 'a' + 10;
 		            break;
 		        case 'A': case 'B': case 'C': case 'D': case 'E': case 'F':
-		            val = (val << 4) + c - 'K';
+		            val = (val << 4) + c - 'A' + 10;
 		            break;
 		        case JSON._done:
 		            throw error(UNEXPECTED_END);
@@ -682,29 +1459,2418 @@ public final class JSON {
 		    }
 		    return (char) val;
 		}
-		
-	} 
-    
-    protected static final String OBJECT_TYPE_ERROR =  
-        "Object type error";
-    protected static final String ARRAY_TYPE_ERROR = 
-        "Array type error";
-    protected static final String STRING_TYPE_ERROR = 
-        "String type error";
-    protected static final String BOOLEAN_TYPE_ERROR = 
-        "Boolean type error";
-    protected static final String DOUBLE_TYPE_ERROR = 
-        "Double type error";
-    protected static final String BIGDECIMAL_TYPE_ERROR = 
-        "BigDecimal type error";
-    protected static final String INTEGER_TYPE_ERROR = 
-        "Integer type error";
-    protected static final String NUMBER_TYPE_ERROR = 
-        "Number type error";
-    protected static final String NULL_JSON_STRING = 
-        "null JSON string";
-    
-    protected static final Number N (java.lang.Object value) {
+
+		protected final void begin(String json) {
+		    if (buf == null)
+		        buf = new StringBuilder();
+		    if (text == null)
+		        text = new StringCharacterIterator(json);
+		    else
+		        text.setText(json);
+		    it = text;
+		}
+
+		protected final void begin(byte[] json, int off, int len) {
+		    if (buf == null)
+		        buf = new StringBuilder();
+		    open(json, off, len);
+		}
+
+		/**
+		 * Release the evaluated input and the scratch buffers that grew 
+		 * too large to be kept for the next evaluation.
+		 */
+		protected final void release() {
+		    it = null;
+		    bytes = null;
+		    if (text != null)
+		        text.setText("");
+		    if (buf != null && buf.capacity() > SCRATCH_LIMIT)
+		        buf = null;
+		    if (chars != null && chars.length > SCRATCH_LIMIT)
+		        chars = null;
+		}
+
+		protected final void open(byte[] json, int off, int len) {
+		    bytes = json;
+		    start = off;
+		    end = off + len;
+		    at = off;
+		    b = (at < end) ? bytes[at] & 0xff : EOF;
+		    if (chars == null)
+		        chars = new char[64];
+		}
+
+		protected final int read() {
+		    return b = (++at < end) ? bytes[at] & 0xff : EOF;
+		}
+
+		protected final JSON.Error utf8Error(String message) {
+		    return new JSON.Error(message, at - start);
+		}
+
+		protected final void utf8Whitespace() {
+		    while (b == ' ' || (b > 8 && b < 14) || (b > 27 && b < 32)) read();
+		}
+
+		protected final java.lang.Object utf8Value() throws Error {
+		    while (b == ' ' || (b > 8 && b < 14) || (b > 27 && b < 32)) read();
+		    switch(b){
+		    case '{': {read(); return utf8Object(new JSON.Object());}
+		    case '[': {read(); return pack(utf8Array(new JSON.Array()));}
+		    case '"': {read(); return utf8String();}
+		    case '0': case '1': case '2': case '3': case '4':
+		    case '5': case '6': case '7': case '8': case '9':
+		    case '-': {
+		        return utf8Number();
+		        }
+		    case 't': {
+		        if (read() == 'r' && read() == 'u' && read() == 'e') {
+		            read(); return Boolean.TRUE;
+		        } else
+		            throw utf8Error(TRUE_EXPECTED);
+		    }
+		    case 'f': {
+		        if (read() == 'a' && read() == 'l' && read() == 's' && read() == 'e') {
+		            read(); return Boolean.FALSE;
+		        } else
+		            throw utf8Error(FALSE_EXPECTED);
+		    }
+		    case 'n': {
+		        if (read() == 'u' && read() == 'l' && read() == 'l') {
+		            read(); return null;
+		        } else
+		            throw utf8Error(NULL_EXPECTED);
+		    }
+		    case ',': {read(); return COMMA;}
+		    case ':': {read(); return COLON;}
+		    case ']': {read(); return ARRAY;}
+		    case '}': {read(); return OBJECT;}
+		    case EOF:
+		        throw utf8Error(UNEXPECTED_END);
+		    default:
+		        throw utf8Error(UNEXPECTED_CHARACTER);
+		    }
+		}
+
+		protected final java.lang.Object utf8Value(String name) throws Error {
+		    try {
+		        return utf8Value();
+		    } catch (JSON.Error e) {
+		        e.jsonPath.add(0, name);
+		        throw e;
+		    }
+		}
+
+		protected final java.lang.Object utf8Value(int index) throws Error {
+		    try {
+		        return utf8Value();
+		    } catch (JSON.Error e) {
+		        e.jsonPath.add(0, Integer.valueOf(index));
+		        throw e;
+		    }
+		}
+
+		protected final java.lang.Object utf8Object(Map o) throws Error {
+		    if (--containers < 0)
+		        throw utf8Error(CONTAINERS_OVERFLOW);
+
+		    String name;
+		    java.lang.Object val;
+		    java.lang.Object token = utf8Name();
+		    while (token != OBJECT) {
+		        if (!(token instanceof String))
+		            throw utf8Error(STRING_EXPECTED);
+
+		        if (--iterations < 0)
+		            throw utf8Error(ITERATIONS_OVERFLOW);
+
+		        name = (String) token;
+		        if (utf8Value() == COLON) {
+		            val = utf8Value(name);
+		            if (val==COLON || val==COMMA || val==OBJECT || val==ARRAY)
+		                throw utf8Error(VALUE_EXPECTED);
+
+		            o.put(name, val);
+		            token = utf8Value();
+		            if (token == COMMA)
+		                token = utf8Name();
+		        } else {
+		            throw utf8Error(COLON_EXPECTED);
+		        }
+		    }
+		    return o;
+		}
+
+		protected final java.lang.Object utf8Project(Projection p) 
+		throws Error {
+		    if (p.all) {
+		        java.lang.Object value = utf8Value();
+		        if (value==COLON || value==COMMA || value==OBJECT || value==ARRAY)
+		            throw utf8Error(VALUE_EXPECTED);
+		        
+		        return value;
+		    }
+		    utf8Whitespace();
+		    if (b == '{') {
+		        read(); return utf8ProjectObject(p, new JSON.Object());
+		    } else if (b == '[') {
+		        read(); return utf8ProjectArray(p, new JSON.Array());
+		    }
+		    utf8Skip();
+		    return SKIPPED;
+		}
+
+		protected final java.lang.Object utf8Project(Projection p, String name) 
+		throws Error {
+		    try {
+		        return utf8Project(p);
+		    } catch (JSON.Error e) {
+		        e.jsonPath.add(0, name);
+		        throw e;
+		    }
+		}
+
+		protected final java.lang.Object utf8Project(Projection p, int index) 
+		throws Error {
+		    try {
+		        return utf8Project(p);
+		    } catch (JSON.Error e) {
+		        e.jsonPath.add(0, Integer.valueOf(index));
+		        throw e;
+		    }
+		}
+
+		protected final java.lang.Object utf8ProjectObject(Projection p, Map o) 
+		throws Error {
+		    if (--containers < 0)
+		        throw utf8Error(CONTAINERS_OVERFLOW);
+
+		    String name;
+		    java.lang.Object val;
+		    int k, n;
+		    utf8Whitespace();
+		    if (b == '}') {
+		        read(); return o;
+		    }
+		    while (true) {
+		        if (b != '"')
+		            throw utf8Error(b == EOF ? UNEXPECTED_END : STRING_EXPECTED);
+
+		        read();
+		        n = utf8Unescape();
+		        k = p.member(chars, n);
+		        if (k > -1)
+		            name = p.names[k];
+		        else if (p.any == null)
+		            name = null;
+		        else if (symbols == null)
+		            name = new String(chars, 0, n);
+		        else
+		            name = symbols.intern(chars, 0, n);
+		        utf8Whitespace();
+		        if (b != ':')
+		            throw utf8Error(COLON_EXPECTED);
+
+		        read();
+		        if (name == null)
+		            utf8Skip();
+		        else {
+		            if (--iterations < 0)
+		                throw utf8Error(ITERATIONS_OVERFLOW);
+
+		            val = utf8Project((k > -1) ? p.members[k] : p.any, name);
+		            if (val != SKIPPED)
+		                o.put(name, val);
+		        }
+		        utf8Whitespace();
+		        if (b == ',') {
+		            read(); utf8Whitespace();
+		        } else if (b == '}') {
+		            read(); return o;
+		        } else
+		            throw utf8Error(b == EOF ? UNEXPECTED_END : UNEXPECTED_CHARACTER);
+		    }
+		}
+
+		protected final java.lang.Object utf8ProjectArray(Projection p, List a) 
+		throws Error {
+		    if (--containers < 0)
+		        throw utf8Error(CONTAINERS_OVERFLOW);
+
+		    Projection element;
+		    java.lang.Object val;
+		    utf8Whitespace();
+		    if (b == ']') {
+		        read(); return a;
+		    }
+		    for (int i = 0; true; i++) {
+		        element = p.element(i);
+		        if (element == null)
+		            utf8Skip();
+		        else {
+		            if (--iterations < 0)
+		                throw utf8Error(ITERATIONS_OVERFLOW);
+
+		            val = utf8Project(element, i);
+		            if (val != SKIPPED)
+		                a.add(val);
+		        }
+		        utf8Whitespace();
+		        if (b == ',') {
+		            read(); utf8Whitespace();
+		        } else if (b == ']') {
+		            read(); return a;
+		        } else
+		            throw utf8Error(b == EOF ? UNEXPECTED_END : UNEXPECTED_CHARACTER);
+		    }
+		}
+
+		/**
+		 * Skip one value without decoding it, only checking that its 
+		 * brackets are balanced and its strings closed.
+		 */
+		protected final void utf8Skip() throws Error {
+		    utf8Whitespace();
+		    if (b == ',' || b == ':' || b == '}' || b == ']')
+		        throw utf8Error(VALUE_EXPECTED);
+		    else if (b == EOF)
+		        throw utf8Error(UNEXPECTED_END);
+
+		    byte[] in = bytes;
+		    int i = at, n = end, depth = 0, x;
+		    while (i < n) {
+		        x = in[i];
+		        if (x == '"') {
+		            for (i++; i < n && (x = in[i]) != '"'; i++)
+		                if (x == '\\') 
+		                    i++;
+		            if (i >= n) {
+		                at = end; b = EOF;
+		                throw utf8Error(UNEXPECTED_END);
+		            }
+		            i++;
+		            if (depth == 0)
+		                break;
+		        } else if (x == '{' || x == '[') {
+		            depth++; i++;
+		        } else if (x == '}' || x == ']') {
+		            if (depth == 0)
+		                break;
+
+		            i++;
+		            if (--depth == 0)
+		                break;
+		        } else if (depth == 0 && (x == ',' || x == ':' || (x >= 0 && x <= ' '))) {
+		            break;
+		        } else
+		            i++;
+		    }
+		    if (depth > 0) {
+		        at = end; b = EOF;
+		        throw utf8Error(UNEXPECTED_END);
+		    }
+		    at = i - 1;
+		    read();
+		}
+
+		protected final java.lang.Object utf8Array(List a) throws Error {
+		    if (--containers < 0)
+		        throw utf8Error(CONTAINERS_OVERFLOW);
+
+		    int i = 0;
+		    java.lang.Object token = utf8Value(i++);
+		    while (token != ARRAY) {
+		        if (token==COLON || token==COMMA || token==OBJECT)
+		            throw utf8Error(VALUE_EXPECTED);
+
+		        if (--iterations < 0)
+		            throw utf8Error(ITERATIONS_OVERFLOW);
+
+		        a.add(token);
+		        token = utf8Value();
+		        if (token == COMMA)
+		            token = utf8Value(i++);
+		    }
+		    return a;
+		}
+
+		/**
+		 * Scan a number literal straight from the UTF-8 bytes, like 
+		 * <code>number()</code> does for characters.
+		 */
+		protected final java.lang.Object utf8Number() throws Error {
+		    byte[] in = bytes;
+		    int i = at, n = end, x = b, kind = INTEGER_LITERAL; 
+		    int digits = 0, scale = 0, exponent = 0;
+		    long mantissa = 0;
+		    boolean negative = (x == '-'), exact = true;
+		    if (negative) 
+		        x = (++i < n) ? in[i] : EOF;
+		    while (x >= '0' && x <= '9') {
+		        if (mantissa <= MANTISSA_LIMIT)
+		            mantissa = mantissa * 10 + (x - '0');
+		        else
+		            exact = false;
+		        digits++; x = (++i < n) ? in[i] : EOF;
+		    }
+		    if (x == '.') {
+		        kind = DECIMAL_LITERAL; x = (++i < n) ? in[i] : EOF;
+		        while (x >= '0' && x <= '9') {
+		            if (mantissa <= MANTISSA_LIMIT)
+		                mantissa = mantissa * 10 + (x - '0');
+		            else
+		                exact = false;
+		            digits++; scale++; x = (++i < n) ? in[i] : EOF;
+		        }
+		    }
+		    if (x == 'e' || x == 'E') {
+		        kind = DOUBLE_LITERAL; x = (++i < n) ? in[i] : EOF;
+		        boolean minus = (x == '-');
+		        if (minus || x == '+') 
+		            x = (++i < n) ? in[i] : EOF;
+		        if (x < '0' || x > '9')
+		            exact = false;
+		        while (x >= '0' && x <= '9') {
+		            if (exponent < EXPONENT_LIMIT)
+		                exponent = exponent * 10 + (x - '0');
+		            x = (++i < n) ? in[i] : EOF;
+		        }
+		        if (minus)
+		            exponent = -exponent;
+		    }
+		    int mark = at;
+		    at = i - 1;
+		    read();
+		    if (exact && digits > 0) {
+		        java.lang.Object number = number(
+		            kind, negative, mantissa, exponent - scale
+		            );
+		        if (number != null)
+		            return number;
+		    }
+		    buf.setLength(0);
+		    while (mark < at)
+		        buf.append((char) in[mark++]);
+		    try {
+		        return number(buf.toString());
+		    } catch (NumberFormatException e) {
+		        throw utf8Error(ILLEGAL_NUMBER);
+		    }
+		}
+
+		protected static final int INTEGER_LITERAL = 0;
+		protected static final int DECIMAL_LITERAL = 1;
+		protected static final int DOUBLE_LITERAL = 2;
+		protected static final long MANTISSA_LIMIT = (Long.MAX_VALUE - 9) / 10;
+		protected static final int EXPONENT_LIMIT = 100000;
+		protected static final double[] POWERS_OF_TEN = new double[] {
+		    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 
+		    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+		};
+
+		/**
+		 * Box a scanned number as an <code>Integer</code> or a 
+		 * <code>Long</code>, a <code>BigDecimal</code> or a 
+		 * <code>Double</code>, or return <code>null</code> if the double 
+		 * cannot be rounded correctly without the literal.
+		 * 
+		 * @param kind of literal scanned
+		 * @param negative sign
+		 * @param mantissa digits, without sign nor decimal point
+		 * @param power of ten by which to multiply the mantissa
+		 * @return a <code>Number</code> or <code>null</code>
+		 */
+		protected static final java.lang.Object number(
+		    int kind, boolean negative, long mantissa, int power
+		    ) {
+		    if (kind == INTEGER_LITERAL) {
+		        long value = negative ? -mantissa : mantissa;
+		        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE)
+		            return Integer.valueOf((int) value);
+		        else
+		            return Long.valueOf(value);
+		    } else if (kind == DECIMAL_LITERAL) {
+		        return BigDecimal.valueOf(negative ? -mantissa : mantissa, -power);
+		    }
+		    double value = doubleValue(mantissa, power);
+		    if (Double.isNaN(value))
+		        return null;
+		    
+		    return Double.valueOf(negative ? -value : value);
+		}
+
+		/**
+		 * Convert a number literal that the scanners did not, with integers 
+		 * too large for a <code>long</code> promoted to <code>BigInteger</code>.
+		 * 
+		 * @param literal to convert
+		 * @return a <code>Number</code>
+		 * @throws NumberFormatException if the literal is malformed
+		 */
+		protected static final java.lang.Object number(String literal) {
+		    if (literal.indexOf('e') > -1 || literal.indexOf('E') > -1)
+		        return Double.valueOf(literal);
+		    else if (literal.indexOf('.') > -1)
+		        return new BigDecimal(literal);
+		    
+		    BigInteger integer = new BigInteger(literal);
+		    if (integer.bitLength() < 32)
+		        return Integer.valueOf(integer.intValue());
+		    else if (integer.bitLength() < 64)
+		        return Long.valueOf(integer.longValue());
+		    else
+		        return integer;
+		}
+
+		/**
+		 * Compute the double nearest to <code>mantissa * 10^power</code>,
+		 * exactly when both the mantissa and the power of ten are small 
+		 * enough, else with the Eisel-Lemire algorithm and a 128-bit 
+		 * approximation of the power of five. Returns <code>NaN</code> in 
+		 * the rare cases this approximation cannot decide how to round.
+		 * 
+		 * @param mantissa an unsigned 64-bit integer
+		 * @param power of ten
+		 * @return a positive double or <code>NaN</code>
+		 */
+		protected static final double doubleValue(long mantissa, int power) {
+		    if (mantissa == 0 || power < -342)
+		        return 0.0;
+		    else if (power > 308)
+		        return Double.POSITIVE_INFINITY;
+		    else if (
+		        mantissa > 0 && mantissa <= (1L << 53) && 
+		        power >= -22 && power <= 22
+		        ) {
+		        if (power < 0)
+		            return ((double) mantissa) / POWERS_OF_TEN[-power];
+		        else
+		            return ((double) mantissa) * POWERS_OF_TEN[power];
+		    }
+		    long factor = PowersOfFive.HIGH[power + 342];
+		    int lz = Long.numberOfLeadingZeros(mantissa);
+		    mantissa <<= lz;
+		    long upper = multiplyHigh(mantissa, factor);
+		    long lower = mantissa * factor;
+		    if ((upper & 0x1FF) == 0x1FF && unsignedLess(lower + mantissa, lower)) {
+		        long low = PowersOfFive.LOW[power + 342];
+		        long low_upper = multiplyHigh(mantissa, low);
+		        long low_lower = mantissa * low;
+		        long middle = lower + low_upper;
+		        if (unsignedLess(middle, lower))
+		            upper++;
+		        if (
+		            middle + 1 == 0 && (upper & 0x1FF) == 0x1FF &&
+		            unsignedLess(low_lower + mantissa, low_lower)
+		            )
+		            return Double.NaN;
+		        
+		        lower = middle;
+		    }
+		    int upperbit = (int) (upper >>> 63);
+		    long bits = upper >>> (upperbit + 9);
+		    lz += 1 ^ upperbit;
+		    if (lower == 0 && (upper & 0x1FF) == 0 && (bits & 3) == 1)
+		        return Double.NaN;
+		    
+		    bits += bits & 1;
+		    bits >>>= 1;
+		    if (bits >= (1L << 53)) {
+		        bits = 1L << 52;
+		        lz--;
+		    }
+		    bits &= ~(1L << 52);
+		    long exponent = (((152170 + 65536) * power) >> 16) + 1024 + 63 - lz;
+		    if (exponent < 1 || exponent > 2046)
+		        return Double.NaN;
+		    
+		    return Double.longBitsToDouble(bits | (exponent << 52));
+		}
+
+		/**
+		 * The high 64 bits of the unsigned 128-bit product of two longs, 
+		 * which Java 8 does not provide (<code>Math.multiplyHigh</code> is 
+		 * Java 9 and signed).
+		 */
+		protected static final long multiplyHigh(long x, long y) {
+		    long x0 = x & 0xFFFFFFFFL, x1 = x >>> 32;
+		    long y0 = y & 0xFFFFFFFFL, y1 = y >>> 32;
+		    long p01 = x0 * y1;
+		    long middle = x1 * y0 + ((x0 * y0) >>> 32) + (p01 & 0xFFFFFFFFL);
+		    return x1 * y1 + (middle >>> 32) + (p01 >>> 32);
+		}
+
+		protected static final boolean unsignedLess(long x, long y) {
+		    return (x + Long.MIN_VALUE) < (y + Long.MIN_VALUE);
+		}
+
+		/**
+		 * The 128 most significant bits of the powers of five from -342 
+		 * to 308, computed when first needed. 
+		 */
+		protected static final class PowersOfFive {
+		    protected static final long[] HIGH = new long[651];
+		    protected static final long[] LOW = new long[651];
+		    static {
+		        BigInteger five = BigInteger.valueOf(5), power;
+		        for (int q = -342; q <= 308; q++) {
+		            if (q < 0) {
+		                BigInteger divisor = five.pow(-q);
+		                int z = divisor.bitLength();
+		                int b = (q < -27) ? 2 * z + 128 : z + 127;
+		                power = BigInteger.ONE.shiftLeft(b).divide(divisor).add(
+		                    BigInteger.ONE
+		                    );
+		            } else
+		                power = five.pow(q);
+		            power = power.shiftRight(power.bitLength() - 128);
+		            HIGH[q + 342] = power.shiftRight(64).longValue();
+		            LOW[q + 342] = power.longValue();
+		        }
+		    }
+		}
+
+		protected final String utf8String() throws Error {
+		    int n = utf8Unescape();
+		    return new String(chars, 0, n);
+		}
+
+		/**
+		 * Decode a string literal that is a member name and return its
+		 * canonical instance if a symbol table is set. 
+		 */
+		protected final String utf8Symbol() throws Error {
+		    int n = utf8Unescape();
+		    if (symbols == null)
+		        return new String(chars, 0, n);
+		    else
+		        return symbols.intern(chars, 0, n);
+		}
+
+		protected final java.lang.Object utf8Name() throws Error {
+		    utf8Whitespace();
+		    if (b == '"') {
+		        read(); return utf8Symbol();
+		    }
+		    return utf8Value();
+		}
+
+		/**
+		 * Decode a string literal up to its closing quote, copying runs of
+		 * ASCII bytes in a reused array of chars, decoding the rest and 
+		 * returning the count of chars.
+		 */
+		protected final int utf8Unescape() throws Error {
+		    byte[] in = bytes;
+		    char[] out = chars;
+		    int i = at, n = 0, x;
+		    while (true) {
+		        if (n + 2 > out.length) {
+		            char[] grown = new char[out.length * 2];
+		            System.arraycopy(out, 0, grown, 0, n);
+		            out = chars = grown;
+		        }
+		        if (i == end) {
+		            at = i; b = EOF;
+		            throw utf8Error(UNEXPECTED_END);
+		        }
+		        x = in[i];
+		        if (x == '"') {
+		            break;
+		        } else if (x == '\\') {
+		            at = i;
+		            out[n++] = utf8Escape();
+		            i = at + 1;
+		        } else if (x >= 0) {
+		            out[n++] = (char) x;
+		            i++;
+		        } else {
+		            i = utf8Decode(in, i, out, n);
+		            n = (out[n] >= '\uD800' && out[n] < '\uDC00') ? n + 2 : n + 1;
+		        }
+		    }
+		    at = i;
+		    read();
+		    return n;
+		}
+
+		protected final char utf8Escape() throws Error {
+		    switch(read()) {
+		        case 'u': return utf8Unicode(4);
+		        case 'x': return utf8Unicode(2);
+		        case '\\': return '\\';
+		        case '"': return '"';
+		        case '/': return '/';
+		        case 'b': return '\b';
+		        case 'f': return '\f';
+		        case 'n': return '\n';
+		        case 'r': return '\r';
+		        case 't': return '\t';
+		        case EOF:
+		            throw utf8Error(UNEXPECTED_END);
+		        default:
+		            throw utf8Error(ILLEGAL_ESCAPE_SEQUENCE);
+		    }
+		}
+
+		protected final char utf8Unicode(int length) throws Error {
+		    int val = 0;
+		    for (int i = 0; i < length; ++i) {
+		        switch (read()) {
+		        case '0': case '1': case '2': case '3': case '4':
+		        case '5': case '6': case '7': case '8': case '9':
+		            val = (val << 4) + b - '0';
+		            break;
+		        case 'a': case 'b': case 'c': case 'd': case 'e': case 'f':
+		            val = (val << 4) + b - 'a' + 10;
+		            break;
+		        case 'A': case 'B': case 'C': case 'D': case 'E': case 'F':
+		            val = (val << 4) + b - 'A' + 10;
+		            break;
+		        case EOF:
+		            throw utf8Error(UNEXPECTED_END);
+		        default:
+		            throw utf8Error(ILLEGAL_UNICODE_SEQUENCE);
+		        }
+		    }
+		    return (char) val;
+		}
+
+		/**
+		 * Decode the multi-byte UTF-8 sequence at <code>i</code> into one
+		 * or two chars at <code>n</code>, return the index of the next byte.
+		 */
+		protected final int utf8Decode(byte[] in, int i, char[] out, int n) {
+		    int x = in[i] & 0xff, cp;
+		    if (x >= 0xc2 && x < 0xe0) {
+		        if (i + 1 < end && (in[i + 1] & 0xc0) == 0x80) {
+		            out[n] = (char) (((x & 0x1f) << 6) | (in[i + 1] & 0x3f));
+		            return i + 2;
+		        }
+		    } else if (x >= 0xe0 && x < 0xf0) {
+		        if (
+		            i + 2 < end &&
+		            (in[i + 1] & 0xc0) == 0x80 &&
+		            (in[i + 2] & 0xc0) == 0x80
+		            ) {
+		            cp = ((x & 0x0f) << 12)
+		                | ((in[i + 1] & 0x3f) << 6)
+		                | (in[i + 2] & 0x3f);
+		            if (cp >= 0x800 && (cp < 0xd800 || cp > 0xdfff)) {
+		                out[n] = (char) cp;
+		                return i + 3;
+		            }
+		        }
+		    } else if (x >= 0xf0 && x < 0xf5) {
+		        if (
+		            i + 3 < end &&
+		            (in[i + 1] & 0xc0) == 0x80 &&
+		            (in[i + 2] & 0xc0) == 0x80 &&
+		            (in[i + 3] & 0xc0) == 0x80
+		            ) {
+		            cp = ((x & 0x07) << 18)
+		                | ((in[i + 1] & 0x3f) << 12)
+		                | ((in[i + 2] & 0x3f) << 6)
+		                | (in[i + 3] & 0x3f);
+		            if (cp >= 0x10000 && cp <= 0x10ffff) {
+		                cp -= 0x10000;
+		                out[n] = (char) (0xd800 | (cp >> 10));
+		                out[n + 1] = (char) (0xdc00 | (cp & 0x3ff));
+		                return i + 4;
+		            }
+		        }
+		    }
+		    out[n] = '\uFFFD';
+		    return i + 1;
+		}
+
+	} 
+    
+    /**
+     * A resumable JSON parser fed with chunks of UTF-8 bytes as they are
+     * read from a network channel, keeping its state between calls.
+     * 
+     * @h3 Synopsis
+     * 
+     * @pre JSON.Feed feed = new JSON.Feed(64, 4096);
+     *try {
+     *    while (!feed.feed(chunk)) { // read the next chunk
+     *        ...
+     *    }
+     *    JSON.Object body = (JSON.Object) feed.finish();
+     *} catch (JSON.Error e) {
+     *    System.out.println(e.getMessage())
+     *}
+     * 
+     * @p A feed completes as soon as the last byte of a JSON object, array
+     * or string arrives and leaves the bytes that follow it unconsumed. A 
+     * number at the top level is only complete when followed by another byte
+     * or when <code>finish</code> is called.
+     * 
+     * @p Only the pending literal and the stack of open containers are kept
+     * between chunks, which are limited by the same number of containers
+     * and iterations than a <code>JSON.Parser</code> and by the number of
+     * characters of a literal. Once an error has been thrown, the feed must
+     * be reset or discarded.
+     */
+    public static class Feed extends Parser {
+        
+        protected static final int STRING = 1;
+        protected static final int ESCAPE = 2;
+        protected static final int UNICODE = 3;
+        protected static final int UTF8 = 4;
+        protected static final int NUMBER = 5;
+        protected static final int LITERAL = 6;
+        
+        protected static final String LITERAL_OVERFLOW = "literal overflow";
+        
+        protected static final int VALUE = 0;
+        protected static final int FIRST_VALUE = 1;
+        protected static final int NAME = 2;
+        protected static final int FIRST_NAME = 3;
+        protected static final int COLON_NEXT = 4;
+        protected static final int MEMBER_NEXT = 5;
+        protected static final int DONE = 6;
+        
+        protected int state = VALUE;
+        protected int token = 0;
+        protected int depth = 0;
+        protected java.lang.Object[] stack = new java.lang.Object[16];
+        protected String[] names = new String[16];
+        protected java.lang.Object result = null;
+        protected int offset = 0;
+        /**
+         * The maximum number of characters buffered for a string or a
+         * number, 16777216 by default.
+         */
+        public int literals = 16777216;
+        private String _literal;
+        private java.lang.Object _literalValue;
+        private int _literalAt;
+        private int _code;
+        private int _need;
+        private int _min;
+        private byte[] _chunk;
+        
+        /**
+         * Instanciate a JSON feed with limits set to 65355 on 
+         * the number of containers and iterations.
+         */
+        public Feed() {
+            buf = new StringBuilder();
+        }
+        
+        /**
+         * Instanciate a JSON feed with the given limits on 
+         * the number of both containers and iterations.
+         *
+         * @param containers a limit on the number of objects and arrays
+         * @param iterations a limit on the total count of values
+         */
+        public Feed(int containers, int iterations) {
+            super(containers, iterations);
+            buf = new StringBuilder();
+        }
+        
+        /**
+         * Feed a chunk of bytes, return the number of bytes consumed or
+         * throws a <code>JSON.Error</code> if a syntax error occured.
+         * 
+         * @param chunk of UTF-8 encoded bytes
+         * @param off position of the first byte to feed
+         * @param len number of bytes to feed
+         * @return the number of bytes consumed
+         * @throws JSON.Error
+         */
+        public final int feed(byte[] chunk, int off, int len) throws Error {
+            int i = push(chunk, off, off + len);
+            offset += i - off;
+            return i - off;
+        }
+        
+        /**
+         * Feed the remaining bytes of a buffer and advance its position
+         * to the first byte not consumed, return <code>true</code> if a 
+         * complete JSON value has been parsed or throws a 
+         * <code>JSON.Error</code> if a syntax error occured.
+         * 
+         * @param chunk of UTF-8 encoded bytes
+         * @return <code>true</code> if the value is complete
+         * @throws JSON.Error
+         */
+        public final boolean feed(ByteBuffer chunk) throws Error {
+            if (chunk.hasArray()) {
+                int base = chunk.arrayOffset();
+                int i = base + chunk.position();
+                chunk.position(chunk.position() + feed(
+                    chunk.array(), i, chunk.remaining()
+                    ));
+            } else {
+                if (_chunk == null)
+                    _chunk = new byte[SIO.fioBufferSize];
+                int l, n;
+                while (state != DONE && chunk.hasRemaining()) {
+                    l = Math.min(_chunk.length, chunk.remaining());
+                    chunk.duplicate().get(_chunk, 0, l);
+                    n = feed(_chunk, 0, l);
+                    chunk.position(chunk.position() + n);
+                }
+            }
+            return state == DONE;
+        }
+        
+        /**
+         * Restore the limits on containers and iterations and clear the 
+         * state of this feed, so that it can parse another JSON value, 
+         * including after an error.
+         */
+        public void reset() {
+            super.reset();
+            for (int i = 0; i < depth; i++) {
+                stack[i] = null;
+                names[i] = null;
+            }
+            state = VALUE;
+            token = 0;
+            depth = 0;
+            offset = 0;
+            result = null;
+            if (buf.capacity() > SCRATCH_LIMIT)
+                buf = new StringBuilder();
+            else
+                buf.setLength(0);
+        }
+        
+        /**
+         * Return <code>true</code> if a complete JSON value has been parsed.
+         * 
+         * @return <code>true</code> if the value is complete
+         */
+        public final boolean complete() {
+            return state == DONE;
+        }
+        
+        /**
+         * Signal the end of input, return the JSON value parsed or throws
+         * a <code>JSON.Error</code> if it is not complete.
+         * 
+         * @return an untyped Object
+         * @throws JSON.Error
+         */
+        public final java.lang.Object finish() throws Error {
+            if (token == NUMBER && depth == 0) {
+                token = 0;
+                put(literal(0), 0);
+            }
+            if (state != DONE) 
+                throw feedError(UNEXPECTED_END, 0);
+            
+            return result;
+        }
+        
+        protected final JSON.Error feedError(String message, int index) {
+            JSON.Error e = new JSON.Error(message, offset + index);
+            java.lang.Object container;
+            for (int i = 0; i < depth; i++) {
+                container = stack[i];
+                if (container instanceof Map) {
+                    if (names[i] != null)
+                        e.jsonPath.add(names[i]);
+                } else
+                    e.jsonPath.add(Integer.valueOf(((List) container).size()));
+            }
+            return e;
+        }
+        
+        protected final java.lang.Object literal(int index) throws Error {
+            StringBuilder s = buf;
+            int i = 0, n = s.length(), kind = INTEGER_LITERAL; 
+            int digits = 0, scale = 0, exponent = 0;
+            boolean valid;
+            char x = (n > 0) ? s.charAt(0) : 0;
+            long mantissa = 0;
+            boolean negative = (x == '-'), exact = true;
+            if (negative) 
+                x = (++i < n) ? s.charAt(i) : 0;
+            while (x >= '0' && x <= '9') {
+                if (mantissa <= MANTISSA_LIMIT)
+                    mantissa = mantissa * 10 + (x - '0');
+                else
+                    exact = false;
+                digits++; x = (++i < n) ? s.charAt(i) : 0;
+            }
+            valid = digits > 0;
+            if (x == '.') {
+                kind = DECIMAL_LITERAL; x = (++i < n) ? s.charAt(i) : 0;
+                while (x >= '0' && x <= '9') {
+                    if (mantissa <= MANTISSA_LIMIT)
+                        mantissa = mantissa * 10 + (x - '0');
+                    else
+                        exact = false;
+                    digits++; scale++; x = (++i < n) ? s.charAt(i) : 0;
+                }
+                valid = valid && scale > 0;
+            }
+            if (x == 'e' || x == 'E') {
+                kind = DOUBLE_LITERAL; x = (++i < n) ? s.charAt(i) : 0;
+                boolean minus = (x == '-');
+                if (minus || x == '+') 
+                    x = (++i < n) ? s.charAt(i) : 0;
+                if (x < '0' || x > '9')
+                    valid = false;
+                while (x >= '0' && x <= '9') {
+                    if (exponent < EXPONENT_LIMIT)
+                        exponent = exponent * 10 + (x - '0');
+                    x = (++i < n) ? s.charAt(i) : 0;
+                }
+                if (minus)
+                    exponent = -exponent;
+            }
+            if (!valid || i < n)
+                throw feedError(ILLEGAL_NUMBER, index);
+            
+            if (exact) {
+                java.lang.Object number = number(
+                    kind, negative, mantissa, exponent - scale
+                    );
+                if (number != null)
+                    return number;
+            }
+            return number(s.toString());
+        }
+        
+        protected final void open(java.lang.Object container, int index) 
+        throws Error {
+            if (--containers < 0)
+                throw feedError(CONTAINERS_OVERFLOW, index);
+            
+            if (depth == stack.length) {
+                java.lang.Object[] s = new java.lang.Object[depth * 2];
+                System.arraycopy(stack, 0, s, 0, depth);
+                stack = s;
+                String[] n = new String[depth * 2];
+                System.arraycopy(names, 0, n, 0, depth);
+                names = n;
+            }
+            stack[depth] = container;
+            names[depth] = null;
+            depth++;
+        }
+        
+        protected final void close(int index) throws Error {
+            depth--;
+            java.lang.Object container = stack[depth];
+            stack[depth] = null;
+            names[depth] = null;
+            put(container, index);
+        }
+        
+        protected final void put(java.lang.Object value, int index) 
+        throws Error {
+            if (depth == 0) {
+                result = value;
+                state = DONE;
+                return;
+            }
+            if (--iterations < 0)
+                throw feedError(ITERATIONS_OVERFLOW, index);
+            
+            java.lang.Object container = stack[depth - 1];
+            if (container instanceof Map) {
+                ((Map) container).put(names[depth - 1], value);
+                names[depth - 1] = null;
+            } else
+                ((List) container).add(value);
+            state = MEMBER_NEXT;
+        }
+        
+        protected final void codePoint(int cp) {
+            if (cp >= _min && cp <= 0x10ffff && (cp < 0xd800 || cp > 0xdfff)) {
+                if (cp > 0xffff) {
+                    cp -= 0x10000;
+                    buf.append((char) (0xd800 | (cp >> 10)));
+                    buf.append((char) (0xdc00 | (cp & 0x3ff)));
+                } else
+                    buf.append((char) cp);
+            } else
+                buf.append('\uFFFD');
+        }
+        
+        protected final int push(byte[] in, int i, int end) throws Error {
+            int x, base = i;
+            for (; i < end; i++) {
+                x = in[i] & 0xff;
+                switch (token) {
+                case STRING:
+                    if (x != '"' && buf.length() >= literals)
+                        throw feedError(LITERAL_OVERFLOW, i - base);
+                    if (x == '"') {
+                        token = 0;
+                        if (state == NAME || state == FIRST_NAME) {
+                            names[depth - 1] = (symbols == null) ? 
+                                buf.toString() : symbols.intern(buf);
+                            state = COLON_NEXT;
+                        } else
+                            put(buf.toString(), i - base);
+                    } else if (x == '\\') {
+                        token = ESCAPE;
+                    } else if (x < 0x80) {
+                        buf.append((char) x);
+                    } else if (x >= 0xc2 && x < 0xe0) {
+                        _code = x & 0x1f; _need = 1; _min = 0x80; token = UTF8;
+                    } else if (x >= 0xe0 && x < 0xf0) {
+                        _code = x & 0x0f; _need = 2; _min = 0x800; token = UTF8;
+                    } else if (x >= 0xf0 && x < 0xf5) {
+                        _code = x & 0x07; _need = 3; _min = 0x10000; token = UTF8;
+                    } else
+                        buf.append('\uFFFD');
+                    continue;
+                case UTF8:
+                    if ((x & 0xc0) == 0x80) {
+                        _code = (_code << 6) | (x & 0x3f);
+                        if (--_need == 0) {
+                            codePoint(_code);
+                            token = STRING;
+                        }
+                        continue;
+                    }
+                    buf.append('\uFFFD');
+                    token = STRING;
+                    i--;
+                    continue;
+                case ESCAPE:
+                    token = STRING;
+                    switch (x) {
+                    case 'u': _code = 0; _need = 4; token = UNICODE; break;
+                    case 'x': _code = 0; _need = 2; token = UNICODE; break;
+                    case '\\': buf.append('\\'); break;
+                    case '"': buf.append('"'); break;
+                    case '/': buf.append('/'); break;
+                    case 'b': buf.append('\b'); break;
+                    case 'f': buf.append('\f'); break;
+                    case 'n': buf.append('\n'); break;
+                    case 'r': buf.append('\r'); break;
+                    case 't': buf.append('\t'); break;
+                    default:
+                        throw feedError(ILLEGAL_ESCAPE_SEQUENCE, i - base);
+                    }
+                    continue;
+                case UNICODE:
+                    if (x >= '0' && x <= '9')
+                        _code = (_code << 4) + x - '0';
+                    else if (x >= 'a' && x <= 'f')
+                        _code = (_code << 4) + x - 'a' + 10;
+                    else if (x >= 'A' && x <= 'F')
+                        _code = (_code << 4) + x - 'A' + 10;
+                    else
+                        throw feedError(ILLEGAL_UNICODE_SEQUENCE, i - base);
+                    if (--_need == 0) {
+                        buf.append((char) _code);
+                        token = STRING;
+                    }
+                    continue;
+                case NUMBER:
+                    if (
+                        (x >= '0' && x <= '9') || x == '.' || 
+                        x == 'e' || x == 'E' || x == '+' || x == '-'
+                        ) {
+                        if (buf.length() >= literals)
+                            throw feedError(LITERAL_OVERFLOW, i - base);
+                        buf.append((char) x);
+                        continue;
+                    }
+                    token = 0;
+                    put(literal(i - base), i - base);
+                    break;
+                case LITERAL:
+                    if (x != _literal.charAt(_literalAt))
+                        throw feedError(
+                            _literal == _true ? TRUE_EXPECTED :
+                            _literal == _false ? FALSE_EXPECTED : 
+                            NULL_EXPECTED, i - base
+                            );
+                    if (++_literalAt == _literal.length()) {
+                        token = 0;
+                        put(_literalValue, i - base);
+                    }
+                    continue;
+                }
+                if (x == ' ' || (x > 8 && x < 14) || (x > 27 && x < 32))
+                    continue;
+                
+                switch (state) {
+                case DONE:
+                    return i;
+                case COLON_NEXT:
+                    if (x != ':')
+                        throw feedError(COLON_EXPECTED, i - base);
+                    state = VALUE;
+                    continue;
+                case FIRST_NAME:
+                case NAME:
+                    if (x == '}' && state == FIRST_NAME) {
+                        close(i - base);
+                        continue;
+                    }
+                    if (x != '"')
+                        throw feedError(STRING_EXPECTED, i - base);
+                    if (--iterations < 0)
+                        throw feedError(ITERATIONS_OVERFLOW, i - base);
+                    iterations++;
+                    buf.setLength(0);
+                    token = STRING;
+                    continue;
+                case MEMBER_NEXT:
+                    if (stack[depth - 1] instanceof Map) {
+                        if (x == ',')
+                            state = NAME;
+                        else if (x == '}')
+                            close(i - base);
+                        else
+                            throw feedError(UNEXPECTED_CHARACTER, i - base);
+                    } else {
+                        if (x == ',')
+                            state = VALUE;
+                        else if (x == ']')
+                            close(i - base);
+                        else
+                            throw feedError(UNEXPECTED_CHARACTER, i - base);
+                    }
+                    continue;
+                case FIRST_VALUE:
+                    if (x == ']') {
+                        close(i - base);
+                        continue;
+                    }
+                }
+                switch (x) {
+                case '{':
+                    open(new JSON.Object(), i - base);
+                    state = FIRST_NAME;
+                    break;
+                case '[':
+                    open(new JSON.Array(), i - base);
+                    state = FIRST_VALUE;
+                    break;
+                case '"':
+                    buf.setLength(0);
+                    token = STRING;
+                    break;
+                case '0': case '1': case '2': case '3': case '4':
+                case '5': case '6': case '7': case '8': case '9':
+                case '-':
+                    buf.setLength(0);
+                    buf.append((char) x);
+                    token = NUMBER;
+                    break;
+                case 't':
+                    _literal = _true; _literalValue = Boolean.TRUE;
+                    _literalAt = 1; token = LITERAL;
+                    break;
+                case 'f':
+                    _literal = _false; _literalValue = Boolean.FALSE;
+                    _literalAt = 1; token = LITERAL;
+                    break;
+                case 'n':
+                    _literal = _null; _literalValue = null;
+                    _literalAt = 1; token = LITERAL;
+                    break;
+                case ',': case ':': case ']': case '}':
+                    throw feedError(VALUE_EXPECTED, i - base);
+                default:
+                    throw feedError(UNEXPECTED_CHARACTER, i - base);
+                }
+            }
+            return i;
+        }
+        
+    }
+    
+    /**
+     * A pull parser that reads a stream of UTF-8 bytes one event at a time,
+     * with a buffer that only grows to the size of the largest literal, 
+     * whatever the size of the stream.
+     * 
+     * @h3 Synopsis
+     * 
+     * @pre JSON.Reader reader = new JSON.Reader(stream);
+     *try {
+     *    int event = reader.next();
+     *    while (event != JSON.Reader.END) {
+     *        if (event == JSON.Reader.NAME && reader.getName().equals("skip"))
+     *            reader.skipValue();
+     *        event = reader.next();
+     *    }
+     *} catch (JSON.Error e) {
+     *    System.out.println(e.getMessage())
+     *}
+     * 
+     * @p To process the elements of a huge top-level array one by one as
+     * trees:
+     * 
+     * @pre for (java.lang.Object item: new JSON.Reader(stream).elements())
+     *    process((JSON.Object) item);
+     * 
+     * @p Literals are buffered and decoded by the same methods as the bytes
+     * evaluated by <code>JSON.Parser</code>, under the same limits on the
+     * number of containers and iterations. Consecutive values found at the 
+     * top level are read in sequence until the end of the stream.
+     */
+    public static class Reader extends Parser {
+        
+        public static final int END = 0;
+        public static final int START_OBJECT = 1;
+        public static final int END_OBJECT = 2;
+        public static final int START_ARRAY = 3;
+        public static final int END_ARRAY = 4;
+        public static final int NAME = 5;
+        public static final int STRING = 6;
+        public static final int NUMBER = 7;
+        public static final int BOOLEAN = 8;
+        public static final int NULL = 9;
+        
+        protected static final int TOP = 0;
+        protected static final int TOP_DONE = 1;
+        protected static final int OBJECT_FIRST = 2;
+        protected static final int OBJECT_NAME = 3;
+        protected static final int OBJECT_VALUE = 4;
+        protected static final int OBJECT_NEXT = 5;
+        protected static final int ARRAY_FIRST = 6;
+        protected static final int ARRAY_VALUE = 7;
+        protected static final int ARRAY_NEXT = 8;
+        
+        protected InputStream input = null;
+        protected ReadableByteChannel channel = null;
+        protected boolean eof = false;
+        protected int[] levels = new int[16];
+        protected int depth = 0;
+        protected String name = null;
+        protected java.lang.Object current = null;
+        
+        /**
+         * Instanciate a JSON reader of an <code>InputStream</code> with 
+         * limits set to 65355 on the number of containers and iterations.
+         * 
+         * @param input stream to read
+         */
+        public Reader(InputStream input) {
+            this.input = input;
+            buffer();
+        }
+        
+        /**
+         * Instanciate a JSON reader of an <code>InputStream</code> with 
+         * the given limits on the number of containers and iterations.
+         * 
+         * @param input stream to read
+         * @param containers a limit on the number of objects and arrays
+         * @param iterations a limit on the total count of values
+         */
+        public Reader(InputStream input, int containers, int iterations) {
+            super(containers, iterations);
+            this.input = input;
+            buffer();
+        }
+        
+        /**
+         * Instanciate a JSON reader of a blocking 
+         * <code>ReadableByteChannel</code> with limits set to 65355 on 
+         * the number of containers and iterations.
+         * 
+         * @p A selectable channel in non-blocking mode is refused, the
+         * reader would spin on its empty reads. Use a 
+         * <code>JSON.Feed</code> to parse what a non-blocking channel 
+         * reads.
+         * 
+         * @param channel to read
+         * @throws IllegalArgumentException if the channel is not blocking
+         */
+        public Reader(ReadableByteChannel channel) {
+            this.channel = blocking(channel);
+            buffer();
+        }
+        
+        /**
+         * Instanciate a JSON reader of a blocking 
+         * <code>ReadableByteChannel</code> with the given limits on the 
+         * number of containers and iterations.
+         * 
+         * @param channel to read
+         * @param containers a limit on the number of objects and arrays
+         * @param iterations a limit on the total count of values
+         * @throws IllegalArgumentException if the channel is not blocking
+         */
+        public Reader(
+            ReadableByteChannel channel, int containers, int iterations
+            ) {
+            super(containers, iterations);
+            this.channel = blocking(channel);
+            buffer();
+        }
+        
+        protected static final ReadableByteChannel blocking(
+            ReadableByteChannel channel
+            ) {
+            if (
+                channel instanceof SelectableChannel && 
+                !((SelectableChannel) channel).isBlocking()
+                )
+                throw new IllegalArgumentException(
+                    "non-blocking channel"
+                    );
+            return channel;
+        }
+        
+        protected final void buffer() {
+            buf = new StringBuilder();
+            bytes = new byte[SIO.netBufferSize];
+            chars = new char[64];
+            start = 0;
+            at = 0;
+            end = 0;
+            levels[0] = TOP;
+        }
+        
+        /**
+         * Read the next event, one of <code>START_OBJECT</code>, 
+         * <code>END_OBJECT</code>, <code>START_ARRAY</code>, 
+         * <code>END_ARRAY</code>, <code>NAME</code>, <code>STRING</code>,
+         * <code>NUMBER</code>, <code>BOOLEAN</code>, <code>NULL</code> 
+         * or <code>END</code> at the end of the stream.
+         * 
+         * @return the next event
+         * @throws JSON.Error
+         * @throws IOException
+         */
+        public final int next() throws Error, IOException {
+            int x = space();
+            switch (levels[depth]) {
+            case TOP: case TOP_DONE:
+                if (x == EOF)
+                    return END;
+                break;
+            case OBJECT_FIRST:
+            case OBJECT_NAME:
+                if (x == '}' && levels[depth] == OBJECT_FIRST) {
+                    at++; depth--; return END_OBJECT;
+                }
+                if (x != '"')
+                    throw utf8Error(x == EOF ? UNEXPECTED_END : STRING_EXPECTED);
+                if (--iterations < 0)
+                    throw utf8Error(ITERATIONS_OVERFLOW);
+                at++;
+                bufferString();
+                name = utf8Symbol();
+                if (space() != ':')
+                    throw utf8Error(COLON_EXPECTED);
+                at++;
+                levels[depth] = OBJECT_VALUE;
+                return NAME;
+            case OBJECT_NEXT:
+                if (x == ',') {
+                    at++; levels[depth] = OBJECT_NAME; return next();
+                } else if (x == '}') {
+                    at++; depth--; return END_OBJECT;
+                } else 
+                    throw utf8Error(x == EOF ? UNEXPECTED_END : UNEXPECTED_CHARACTER);
+            case ARRAY_FIRST:
+                if (x == ']') {
+                    at++; depth--; return END_ARRAY;
+                }
+                break;
+            case ARRAY_NEXT:
+                if (x == ',') {
+                    at++; levels[depth] = ARRAY_VALUE; return next();
+                } else if (x == ']') {
+                    at++; depth--; return END_ARRAY;
+                } else 
+                    throw utf8Error(x == EOF ? UNEXPECTED_END : UNEXPECTED_CHARACTER);
+            }
+            valued();
+            return start(x);
+        }
+        
+        /**
+         * Return <code>true</code> if there is another member or item in
+         * the current object or array, or another value at the top level.
+         * 
+         * @return <code>true</code> if a value or a name follows
+         * @throws JSON.Error if the object or array is truncated or not
+         * followed by a comma or its closing brace or bracket
+         * @throws IOException
+         */
+        public final boolean hasNext() throws Error, IOException {
+            int x = space();
+            switch (levels[depth]) {
+            case TOP: case TOP_DONE:
+                return x != EOF;
+            case OBJECT_FIRST:
+                if (x == EOF)
+                    throw utf8Error(UNEXPECTED_END);
+                return x != '}';
+            case ARRAY_FIRST:
+                if (x == EOF)
+                    throw utf8Error(UNEXPECTED_END);
+                return x != ']';
+            case OBJECT_NEXT:
+                if (x == ',') {
+                    at++; levels[depth] = OBJECT_NAME; return true;
+                } else if (x == '}')
+                    return false;
+                else
+                    throw utf8Error(x == EOF ? UNEXPECTED_END : UNEXPECTED_CHARACTER);
+            case ARRAY_NEXT:
+                if (x == ',') {
+                    at++; levels[depth] = ARRAY_VALUE; return true;
+                } else if (x == ']')
+                    return false;
+                else
+                    throw utf8Error(x == EOF ? UNEXPECTED_END : UNEXPECTED_CHARACTER);
+            }
+            return true;
+        }
+        
+        /**
+         * Read the next value as a tree of <code>JSON.Object</code>,
+         * <code>JSON.Array</code> and literals, buffering all of it.
+         * 
+         * @return an untyped Object
+         * @throws JSON.Error
+         * @throws IOException
+         */
+        public final java.lang.Object nextValue() throws Error, IOException {
+            if (!hasNext())
+                throw utf8Error(VALUE_EXPECTED);
+            
+            int x = space();
+            valued();
+            if (x == '{' || x == '[') {
+                bufferValue();
+                b = x;
+                return utf8Value();
+            }
+            start(x);
+            return current;
+        }
+        
+        /**
+         * Skip the next value without buffering nor decoding it.
+         * 
+         * @throws JSON.Error
+         * @throws IOException
+         */
+        public final void skipValue() throws Error, IOException {
+            if (!hasNext())
+                throw utf8Error(VALUE_EXPECTED);
+            
+            int x = space();
+            valued();
+            if (x == '{' || x == '[') {
+                int level = 0;
+                boolean quoted = false, escaped = false;
+                do {
+                    if (x == EOF) 
+                        throw utf8Error(UNEXPECTED_END);
+                    else if (quoted) {
+                        if (escaped)
+                            escaped = false;
+                        else if (x == '\\')
+                            escaped = true;
+                        else if (x == '"')
+                            quoted = false;
+                    } else if (x == '"')
+                        quoted = true;
+                    else if (x == '{' || x == '[')
+                        level++;
+                    else if (x == '}' || x == ']')
+                        level--;
+                    at++;
+                    x = peek();
+                } while (level > 0);
+            } else
+                start(x);
+        }
+        
+        /**
+         * Iterate through the elements of a top-level array, reading each
+         * one as a tree and wrapping any error in a 
+         * <code>RuntimeException</code>.
+         * 
+         * @return an <code>Iterable</code> of untyped Objects
+         */
+        public final Iterable elements() {
+            return new Elements(this);
+        }
+        
+        /**
+         * The name read with the last <code>NAME</code> event.
+         */
+        public final String getName() {
+            return name;
+        }
+        
+        /**
+         * The value read with the last <code>STRING</code>, 
+         * <code>NUMBER</code>, <code>BOOLEAN</code> or <code>NULL</code> 
+         * event.
+         */
+        public final java.lang.Object getValue() {
+            return current;
+        }
+        
+        public final String getString() {
+            return JSON.S(current);
+        }
+        
+        public final Number getNumber() {
+            return JSON.N(current);
+        }
+        
+        public final Boolean getBoolean() {
+            return JSON.B(current);
+        }
+        
+        /**
+         * Close the stream or channel read.
+         * 
+         * @throws IOException
+         */
+        public final void close() throws IOException {
+            if (input != null)
+                input.close();
+            else
+                channel.close();
+        }
+        
+        protected final void valued() throws Error {
+            switch (levels[depth]) {
+            case TOP: case TOP_DONE:
+                levels[depth] = TOP_DONE; break;
+            case OBJECT_VALUE:
+                levels[depth] = OBJECT_NEXT; break;
+            case ARRAY_FIRST: case ARRAY_VALUE:
+                if (--iterations < 0)
+                    throw utf8Error(ITERATIONS_OVERFLOW);
+                levels[depth] = ARRAY_NEXT; break;
+            default:
+                throw utf8Error(VALUE_EXPECTED);
+            }
+        }
+        
+        protected final int start(int x) throws Error, IOException {
+            switch (x) {
+            case '{': 
+                at++; push(OBJECT_FIRST); return START_OBJECT;
+            case '[': 
+                at++; push(ARRAY_FIRST); return START_ARRAY;
+            case '"': 
+                at++;
+                bufferString();
+                current = utf8String();
+                return STRING;
+            case '0': case '1': case '2': case '3': case '4':
+            case '5': case '6': case '7': case '8': case '9':
+            case '-':
+                bufferNumber();
+                b = x;
+                current = utf8Number();
+                return NUMBER;
+            case 't': case 'f': case 'n':
+                while (end - at < 5 && more());
+                b = x;
+                current = utf8Value();
+                return (current == null) ? NULL : BOOLEAN;
+            case EOF:
+                throw utf8Error(UNEXPECTED_END);
+            default:
+                throw utf8Error(UNEXPECTED_CHARACTER);
+            }
+        }
+        
+        protected final void push(int level) throws Error {
+            if (--containers < 0)
+                throw utf8Error(CONTAINERS_OVERFLOW);
+            
+            if (++depth == levels.length) {
+                int[] grown = new int[depth * 2];
+                System.arraycopy(levels, 0, grown, 0, depth);
+                levels = grown;
+            }
+            levels[depth] = level;
+        }
+        
+        protected final int peek() throws IOException {
+            if (at < end || more())
+                return b = bytes[at] & 0xff;
+            else
+                return b = EOF;
+        }
+        
+        protected final int space() throws IOException {
+            int x = peek();
+            while (x == ' ' || (x > 8 && x < 14) || (x > 27 && x < 32)) {
+                at++; x = peek();
+            }
+            return x;
+        }
+        
+        /**
+         * Shift the unread bytes at the start of the buffer, grow it if
+         * it is full and read more, return <code>false</code> at the end
+         * of the stream.
+         */
+        protected final boolean more() throws IOException {
+            if (eof)
+                return false;
+            
+            if (at > 0) {
+                System.arraycopy(bytes, at, bytes, 0, end - at);
+                start -= at;
+                end -= at;
+                at = 0;
+            }
+            if (end == bytes.length) {
+                byte[] grown = new byte[bytes.length * 2];
+                System.arraycopy(bytes, 0, grown, 0, end);
+                bytes = grown;
+            }
+            int n;
+            do {
+                if (input != null)
+                    n = input.read(bytes, end, bytes.length - end);
+                else
+                    n = channel.read(ByteBuffer.wrap(
+                        bytes, end, bytes.length - end
+                        ));
+            } while (n == 0);
+            if (n < 0) {
+                eof = true;
+                return false;
+            }
+            end += n;
+            return true;
+        }
+        
+        protected final void bufferString() throws IOException {
+            int i = at, x;
+            boolean escaped = false;
+            while (true) {
+                if (i == end) {
+                    i -= at;
+                    if (!more())
+                        return;
+                    i += at;
+                }
+                x = bytes[i++];
+                if (escaped)
+                    escaped = false;
+                else if (x == '\\')
+                    escaped = true;
+                else if (x == '"')
+                    return;
+            }
+        }
+        
+        protected final void bufferNumber() throws IOException {
+            int i = at, x;
+            while (true) {
+                if (i == end) {
+                    i -= at;
+                    if (!more())
+                        return;
+                    i += at;
+                }
+                x = bytes[i];
+                if (!(
+                    (x >= '0' && x <= '9') || x == '.' || 
+                    x == 'e' || x == 'E' || x == '+' || x == '-'
+                    ))
+                    return;
+                i++;
+            }
+        }
+        
+        protected final void bufferValue() throws IOException {
+            int i = at, x, level = 0;
+            boolean quoted = false, escaped = false;
+            while (true) {
+                if (i == end) {
+                    i -= at;
+                    if (!more())
+                        return;
+                    i += at;
+                }
+                x = bytes[i++];
+                if (quoted) {
+                    if (escaped)
+                        escaped = false;
+                    else if (x == '\\')
+                        escaped = true;
+                    else if (x == '"')
+                        quoted = false;
+                } else if (x == '"')
+                    quoted = true;
+                else if (x == '{' || x == '[')
+                    level++;
+                else if ((x == '}' || x == ']') && --level == 0)
+                    return;
+            }
+        }
+        
+    }
+    
+    protected static final class Elements 
+    implements Iterator, Iterable {
+        private Reader _reader;
+        private boolean _started = false;
+        public Elements (Reader reader) {
+            _reader = reader;
+        }
+        public final boolean hasNext() {
+            try {
+                if (!_started) {
+                    _started = true;
+                    if (_reader.next() != Reader.START_ARRAY)
+                        throw _reader.utf8Error(ARRAY_TYPE_ERROR);
+                }
+                return _reader.hasNext();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+        public final java.lang.Object next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            try {
+                return _reader.nextValue();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+        public final void remove () {
+            throw new UnsupportedOperationException();
+        }
+        public final Iterator iterator () {
+            return this;
+        }
+    }
+    
+    /**
+     * An iterator of the consecutive JSON values found in a stream of UTF-8 
+     * bytes, separated by newlines, whitespaces or nothing at all, that
+     * reports each malformed record without stopping.
+     * 
+     * @h3 Synopsis
+     * 
+     * @pre JSON.Records records = new JSON.Records(stream);
+     *while (records.hasNext()) {
+     *    JSON.Records.Record record = records.nextRecord();
+     *    if (record.error == null)
+     *        process(record.value);
+     *    else
+     *        System.out.println(record.index + ": " + record.error.getMessage());
+     *}
+     * 
+     * @p To decode batches of records in parallel on the common fork-join 
+     * pool, or on another one, returning them in order or as soon as they 
+     * are decoded:
+     * 
+     * @pre JSON.Records records = new JSON.Records(stream, 1 << 20, true);
+     *JSON.Records unordered = new JSON.Records(
+     *    stream, new ForkJoinPool(8), 1 << 20, false
+     *    );
+     * 
+     * @p Records are delimited by a quote and bracket aware scan of the 
+     * bytes, or by newlines only when <code>lines</code> is set, which
+     * confines an unclosed string or container to its line. Each record 
+     * is evaluated by a <code>JSON.Parser</code> with the limits set on 
+     * this iterator, and anything but whitespace after its value is 
+     * reported as the record's error. A batch never splits a record and
+     * is itself split in halves down to <code>LEAF</code> records, that
+     * idle workers of the pool steal. At most <code>window</code> batches
+     * are decoded at once, the memory used is bounded by the size of the
+     * batches and of the largest record.
+     */
+    public static class Records implements Iterator, Iterable {
+        
+        /**
+         * A value or an error found in a stream of records.
+         */
+        public static class Record {
+            /**
+             * The position of this record in the stream, from 0.
+             */
+            public final long index;
+            /**
+             * The offset of the first byte of this record in the stream.
+             */
+            public final long offset;
+            /**
+             * The value evaluated or <code>null</code>.
+             */
+            public final java.lang.Object value;
+            /**
+             * The error thrown evaluating this record or <code>null</code>,
+             * its index is relative to the record's offset.
+             */
+            public final JSON.Error error;
+            
+            public Record(
+                long index, long offset, java.lang.Object value, JSON.Error error
+                ) {
+                this.index = index;
+                this.offset = offset;
+                this.value = value;
+                this.error = error;
+            }
+        }
+        
+        protected static final int WHITESPACE = 0;
+        protected static final int CONTAINER = 1;
+        protected static final int STRING = 2;
+        protected static final int SCALAR = 3;
+        
+        /**
+         * The maximum number of containers of each record. 
+         */
+        public int containers = 65355;
+        /**
+         * The maximum number of iterations of each record. 
+         */
+        public int iterations = 65355;
+        /**
+         * Delimit records by newlines only.
+         */
+        public boolean lines = false;
+        /**
+         * The maximum number of batches decoded at once.
+         */
+        public int window = 2 * Runtime.getRuntime().availableProcessors();
+        
+        /**
+         * The number of records below which a batch is not split.
+         */
+        protected static final int LEAF = 64;
+        
+        protected InputStream input = null;
+        protected ReadableByteChannel channel = null;
+        protected ForkJoinPool pool = null;
+        protected LinkedBlockingQueue completed = null;
+        protected LinkedList pending = new LinkedList();
+        protected int batch = 0;
+        protected boolean eof = false;
+        protected byte[] bytes = new byte[SIO.netBufferSize];
+        protected int end = 0;
+        protected int mark = 0;
+        protected int from = 0;
+        protected int at = 0;
+        protected int scan = 0;
+        protected int mode = WHITESPACE;
+        protected int depth = 0;
+        protected boolean quoted = false;
+        protected boolean escaped = false;
+        protected long offset = 0;
+        protected long count = 0;
+        protected Parser parser = null;
+        protected Record ready = null;
+        protected Iterator records = null;
+        
+        /**
+         * Iterate the records of an <code>InputStream</code>.
+         * 
+         * @param input stream to read
+         */
+        public Records(InputStream input) {
+            this.input = input;
+        }
+        
+        /**
+         * Iterate the records of a blocking <code>ReadableByteChannel</code>.
+         * 
+         * @param channel to read
+         * @throws IllegalArgumentException if the channel is not blocking
+         */
+        public Records(ReadableByteChannel channel) {
+            this.channel = Reader.blocking(channel);
+        }
+        
+        /**
+         * Iterate the records of an <code>InputStream</code> decoded in 
+         * batches of about the given size on the common fork-join pool.
+         * 
+         * @param input stream to read
+         * @param batch size in bytes
+         * @param ordered <code>true</code> to iterate records in order
+         */
+        public Records(InputStream input, int batch, boolean ordered) {
+            this.input = input;
+            parallel(ForkJoinPool.commonPool(), batch, ordered);
+        }
+        
+        /**
+         * Iterate the records of an <code>InputStream</code> decoded in 
+         * batches of about the given size on a fork-join pool.
+         * 
+         * @param input stream to read
+         * @param pool to decode batches
+         * @param batch size in bytes
+         * @param ordered <code>true</code> to iterate records in order
+         */
+        public Records(
+            InputStream input, ForkJoinPool pool, int batch, boolean ordered
+            ) {
+            this.input = input;
+            parallel(pool, batch, ordered);
+        }
+        
+        /**
+         * Iterate the records of a blocking <code>ReadableByteChannel</code>
+         * decoded in batches of about the given size on the common 
+         * fork-join pool.
+         * 
+         * @param channel to read
+         * @param batch size in bytes
+         * @param ordered <code>true</code> to iterate records in order
+         * @throws IllegalArgumentException if the channel is not blocking
+         */
+        public Records(
+            ReadableByteChannel channel, int batch, boolean ordered
+            ) {
+            this.channel = Reader.blocking(channel);
+            parallel(ForkJoinPool.commonPool(), batch, ordered);
+        }
+        
+        /**
+         * Iterate the records of a blocking <code>ReadableByteChannel</code>
+         * decoded in batches of about the given size on a fork-join pool.
+         * 
+         * @param channel to read
+         * @param pool to decode batches
+         * @param batch size in bytes
+         * @param ordered <code>true</code> to iterate records in order
+         * @throws IllegalArgumentException if the channel is not blocking
+         */
+        public Records(
+            ReadableByteChannel channel, ForkJoinPool pool, int batch, 
+            boolean ordered
+            ) {
+            this.channel = Reader.blocking(channel);
+            parallel(pool, batch, ordered);
+        }
+        
+        protected final void parallel(
+            ForkJoinPool pool, int batch, boolean ordered
+            ) {
+            this.pool = pool;
+            this.batch = (batch > 0 ? batch : 1);
+            if (!ordered)
+                completed = new LinkedBlockingQueue();
+        }
+        
+        public final Iterator iterator() {
+            return this;
+        }
+        
+        /**
+         * Return <code>true</code> if there is another record, reading and
+         * decoding the stream as needed.
+         * 
+         * @throws RuntimeException wrapping an <code>IOException</code> 
+         */
+        public final boolean hasNext() {
+            try {
+                if (pool == null) {
+                    if (ready == null)
+                        ready = decode();
+                    return ready != null;
+                }
+                while (records == null || !records.hasNext()) {
+                    records = collect();
+                    if (records == null)
+                        return false;
+                }
+                return true;
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        
+        /**
+         * Return the next record.
+         * 
+         * @return a <code>JSON.Records.Record</code>
+         * @throws NoSuchElementException if there are no more records
+         */
+        public final Record nextRecord() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            
+            if (pool == null) {
+                Record record = ready;
+                ready = null;
+                return record;
+            }
+            return (Record) records.next();
+        }
+        
+        public final java.lang.Object next() {
+            return nextRecord();
+        }
+        
+        public final void remove() {
+            throw new UnsupportedOperationException();
+        }
+        
+        /**
+         * Cancel the batches pending and close the stream read.
+         * 
+         * @throws IOException
+         */
+        public final void close() throws IOException {
+            while (!pending.isEmpty())
+                ((Batch) pending.removeFirst()).cancel(true);
+            if (input != null)
+                input.close();
+            else
+                channel.close();
+        }
+        
+        protected final Record decode() throws IOException {
+            if (!delimit())
+                return null;
+            
+            if (parser == null)
+                parser = new Parser(containers, iterations);
+            Record record = evaluate(
+                parser, bytes, from, at - from, count++, offset + from
+                );
+            mark = at;
+            return record;
+        }
+        
+        protected static final Record evaluate(
+            Parser parser, byte[] bytes, int off, int len, long index, 
+            long offset
+            ) {
+            parser.reset();
+            try {
+                java.lang.Object value = parser.eval(bytes, off, len);
+                if (
+                    value == Parser.OBJECT || value == Parser.ARRAY || 
+                    value == Parser.COLON || value == Parser.COMMA
+                    )
+                    throw new JSON.Error(Parser.VALUE_EXPECTED, 0);
+                
+                for (int i = parser.at, x; i < off + len; i++) {
+                    x = bytes[i];
+                    if (!(x == ' ' || (x > 8 && x < 14) || (x > 27 && x < 32)))
+                        throw new JSON.Error(
+                            Parser.UNEXPECTED_CHARACTER, i - off
+                            );
+                }
+                return new Record(index, offset, value, null);
+            } catch (JSON.Error e) {
+                return new Record(index, offset, null, e);
+            } catch (RuntimeException e) {
+                return new Record(index, offset, null, new JSON.Error(
+                    e.getMessage(), 0
+                    ));
+            }
+        }
+        
+        /**
+         * Decode the records <code>first</code> to <code>last</code> of a
+         * batch, splitting them in halves forked on the pool down to 
+         * <code>LEAF</code> records, and queue the whole batch when it is 
+         * done if its iteration is unordered.
+         */
+        protected static final class Batch extends RecursiveTask {
+            protected byte[] bytes;
+            protected int[] bounds;
+            protected int first;
+            protected int last;
+            protected long index;
+            protected long offset;
+            protected int containers;
+            protected int iterations;
+            protected LinkedBlockingQueue completed = null;
+            protected Batch(Batch batch, int first, int last) {
+                bytes = batch.bytes;
+                bounds = batch.bounds;
+                this.first = first;
+                this.last = last;
+                index = batch.index;
+                offset = batch.offset;
+                containers = batch.containers;
+                iterations = batch.iterations;
+            }
+            protected Batch() {}
+            protected final java.lang.Object compute() {
+                try {
+                    if (last - first > LEAF) {
+                        int middle = (first + last) >>> 1;
+                        Batch left = new Batch(this, first, middle);
+                        left.fork();
+                        ArrayList right = (ArrayList) new Batch(
+                            this, middle, last
+                            ).compute();
+                        ArrayList decoded = (ArrayList) left.join();
+                        decoded.addAll(right);
+                        return decoded;
+                    }
+                    Parser parser = new Parser(containers, iterations);
+                    ArrayList decoded = new ArrayList(last - first);
+                    for (int i = first, k = 2 * first; i < last; i++, k += 2)
+                        decoded.add(evaluate(
+                            parser, bytes, bounds[k], bounds[k + 1] - bounds[k], 
+                            index + i, offset + bounds[k]
+                            ));
+                    return decoded;
+                } finally {
+                    if (completed != null)
+                        completed.add(this);
+                }
+            }
+        }
+        
+        /**
+         * Submit batches until the window is full and return the records 
+         * of the next batch decoded, or <code>null</code> at the end of
+         * the stream.
+         */
+        protected final Iterator collect() 
+        throws IOException, InterruptedException, ExecutionException {
+            while (pending.size() < window) {
+                Batch task = split();
+                if (task == null)
+                    break;
+                
+                task.completed = completed;
+                pool.execute(task);
+                pending.addLast(task);
+            }
+            if (pending.isEmpty())
+                return null;
+            
+            Batch done;
+            if (completed == null)
+                done = (Batch) pending.removeFirst();
+            else {
+                done = (Batch) completed.take();
+                pending.remove(done);
+            }
+            return ((List) done.get()).iterator();
+        }
+        
+        /**
+         * Copy the next records up to the batch size in a new task.
+         */
+        protected final Batch split() throws IOException {
+            int[] bounds = new int[32];
+            int size = 0;
+            while (size == 0 || bounds[size - 1] < batch) {
+                if (!delimit())
+                    break;
+                
+                if (size == bounds.length) {
+                    int[] grown = new int[size * 2];
+                    System.arraycopy(bounds, 0, grown, 0, size);
+                    bounds = grown;
+                }
+                bounds[size++] = from - mark;
+                bounds[size++] = at - mark;
+            }
+            if (size == 0)
+                return null;
+            
+            Batch task = new Batch();
+            task.bytes = new byte[bounds[size - 1]];
+            System.arraycopy(bytes, mark, task.bytes, 0, task.bytes.length);
+            task.bounds = bounds;
+            task.first = 0;
+            task.last = size / 2;
+            task.index = count;
+            task.offset = offset + mark;
+            task.containers = containers;
+            task.iterations = iterations;
+            count += size / 2;
+            mark = at;
+            return task;
+        }
+        
+        /**
+         * Find the next record, set <code>from</code> and <code>at</code> 
+         * to its bounds and return <code>true</code>, or <code>false</code> 
+         * at the end of the stream.
+         */
+        protected final boolean delimit() throws IOException {
+            while (true) {
+                if (scan == end && !more()) {
+                    if (mode == WHITESPACE)
+                        return false;
+                    
+                    return delimited(end);
+                }
+                if (lines ? delimitLine() : delimitValue())
+                    return true;
+            }
+        }
+        
+        protected final boolean delimitLine() {
+            byte[] in = bytes;
+            int i = scan, x;
+            for (; i < end; i++) {
+                x = in[i];
+                if (x == '\n') {
+                    if (mode == WHITESPACE)
+                        continue;
+                    
+                    at = i;
+                    scan = i + 1;
+                    mode = WHITESPACE;
+                    return true;
+                } else if (
+                    mode == WHITESPACE && x != ' ' && x != '\t' && x != '\r'
+                    ) {
+                    from = i;
+                    mode = SCALAR;
+                }
+            }
+            scan = i;
+            return false;
+        }
+        
+        protected final boolean delimitValue() {
+            byte[] in = bytes;
+            int i = scan, x;
+            for (; i < end; i++) {
+                x = in[i];
+                switch (mode) {
+                case WHITESPACE:
+                    if (x == ' ' || (x > 8 && x < 14) || (x > 27 && x < 32))
+                        continue;
+                    
+                    from = i;
+                    if (x == '{' || x == '[') {
+                        mode = CONTAINER;
+                        depth = 1;
+                    } else if (x == '"')
+                        mode = STRING;
+                    else if (x == '}' || x == ']' || x == ',' || x == ':')
+                        return delimited(i + 1);
+                    else
+                        mode = SCALAR;
+                    continue;
+                case CONTAINER:
+                    if (escaped)
+                        escaped = false;
+                    else if (quoted) {
+                        if (x == '\\')
+                            escaped = true;
+                        else if (x == '"')
+                            quoted = false;
+                    } else if (x == '"')
+                        quoted = true;
+                    else if (x == '{' || x == '[')
+                        depth++;
+                    else if ((x == '}' || x == ']') && --depth == 0)
+                        return delimited(i + 1);
+                    continue;
+                case STRING:
+                    if (escaped)
+                        escaped = false;
+                    else if (x == '\\')
+                        escaped = true;
+                    else if (x == '"')
+                        return delimited(i + 1);
+                    continue;
+                default:
+                    if (
+                        (x >= 0 && x <= ' ') || x == '{' || x == '[' || x == '"' || 
+                        x == '}' || x == ']' || x == ',' || x == ':'
+                        )
+                        return delimited(i);
+                }
+            }
+            scan = i;
+            return false;
+        }
+        
+        protected final boolean delimited(int i) {
+            at = scan = i;
+            mode = WHITESPACE;
+            depth = 0;
+            quoted = false;
+            escaped = false;
+            return true;
+        }
+        
+        /**
+         * Read more bytes after the unconsumed ones, return 
+         * <code>false</code> at the end of the stream.
+         */
+        protected final boolean more() throws IOException {
+            if (eof)
+                return false;
+            
+            if (mark > 0) {
+                System.arraycopy(bytes, mark, bytes, 0, end - mark);
+                offset += mark;
+                end -= mark;
+                scan -= mark;
+                from -= mark;
+                at -= mark;
+                mark = 0;
+            }
+            if (end == bytes.length) {
+                byte[] grown = new byte[bytes.length * 2];
+                System.arraycopy(bytes, 0, grown, 0, end);
+                bytes = grown;
+            }
+            int n;
+            do {
+                if (input != null)
+                    n = input.read(bytes, end, bytes.length - end);
+                else
+                    n = channel.read(ByteBuffer.wrap(
+                        bytes, end, bytes.length - end
+                        ));
+            } while (n == 0);
+            if (n < 0) {
+                eof = true;
+                return false;
+            }
+            end += n;
+            return true;
+        }
+    }
+    
+    protected static final String OBJECT_TYPE_ERROR =  
+        "Object type error";
+    protected static final String ARRAY_TYPE_ERROR = 
+        "Array type error";
+    protected static final String STRING_TYPE_ERROR = 
+        "String type error";
+    protected static final String BOOLEAN_TYPE_ERROR = 
+        "Boolean type error";
+    protected static final String DOUBLE_TYPE_ERROR = 
+        "Double type error";
+    protected static final String BIGDECIMAL_TYPE_ERROR = 
+        "BigDecimal type error";
+    protected static final String INTEGER_TYPE_ERROR = 
+        "Integer type error";
+    protected static final String NUMBER_TYPE_ERROR = 
+        "Number type error";
+    protected static final String NULL_JSON_STRING = 
+        "null JSON string";
+    
+    protected static final Number N (java.lang.Object value) {
         if (value instanceof Number) {return (Number) value;} 
         else throw new RuntimeException(NUMBER_TYPE_ERROR);
     }   
@@ -738,501 +3904,2691 @@ public final class JSON {
     }
     
     /**
-     * An extension of HashMap with type-casting convenience methods
+     * An extension of HashMap with type-casting convenience methods
+     * that throw <code>JSON.Error</code> or return a typed object.
+     * 
+     * @h3 Synopsis
+     * 
+     * @pre try {
+     *    JSON.Object map = (new JSON()).object("{" +
+     *        "\"nothing\": null," +
+     *        "\"a boolean\": true," +
+     *        "\"an integer\": 2," +
+     *        "\"a big decimal\": +1234567.89," +
+     *        "\"a double float\": -123456789e-4," +
+     *        "\"unicode string"\: \"hello world!\", "+
+     *        "\"a list\": [null,true,1,2.0,3e+3]" +
+     *        "\"another map\": {}" +
+     *        "}");
+     *    Boolean b = map.getBoolean("test");
+     *    Integer i = map.getInteger("an integer");
+     *    BigDecimal d = map.getDecimal("a big decimal");
+     *    Double r = map.getDouble("a double float");
+     *    String s = map.getString("unicode string");
+     *    JSON.Array a = map.getArray("a list");
+     *    JSON.Object o = map.getObject("another map");
+     *} catch (JSON.Error e) {
+     *    System.out.println(e.jstr());
+     *}
+     * 
+     * The convenience is double. At runtime it distinguishes a JSON
+     * type value error from other type casting allow programs to be
+     * executed like a scripting language against to access a dynamic  
+     * object model and continue in Java.
+     * 
+     * @p The second advantage for developper is trivial but practical:
+     * most java IDE support autocompletion and namespace browsing by
+     * type. Not having to break the chain for "manual" type casting
+     * helps a lot and make the whole a lot clearer to read and debug. 
+     * 
+     * @p Objects of up to eight members keep them in insertion order in
+     * a single array of names and values, without the table and entries
+     * of a <code>HashMap</code>, and move them to the inherited table 
+     * when a ninth is added. All <code>Map</code> methods and views, 
+     * including those of Java 8 with functional arguments, see the same
+     * members in both layouts.
+     */
+    public static class Object 
+    extends HashMap // <String,java.lang.Object> 
+    implements Native {
+        public final void add (String name, java.lang.Object value) {
+            if (containsKey(name)) {
+                java.lang.Object curr = get(name);
+                if (curr instanceof JSON.Array) {
+                    ((JSON.Array) curr).add(value);
+                } else {
+                    put(name, JSON.list(curr, value));
+                }
+            } else {
+                put(name, value);
+            }
+        }
+        /**
+         * Access an <code>Number</code> value by name.
+         * 
+         * @param name of the value to access
+         * @return an numeric value
+         * @throws if there is no <code>Number</code> value by that named
+         */
+        public final Number getNumber(String name) {
+            return JSON.N(get(name));
+        }
+        /**
+         * Access an <code>Integer</code> value by name.
+         * 
+         * @param name of the value to access
+         * @return an integer value
+         * @throws if there is no <code>Integer</code> value by that named
+         */
+        public final Integer getInteger(String name) {
+            return JSON.I(get(name));
+        }
+        /**
+         * Access a value by name and cast it to an <code>int</code> or return 
+         * the given default.
+         * 
+         * @param name of the value to cast
+         * @param def the default value if none is named
+         * @return an integer value
+         */
+        public final int intValue(String name, int def) {
+            if (containsKey(name)) {
+            	return JSON.N(get(name)).intValue();
+            } else {
+            	return def;
+            }
+        }
+        /**
+         * Access a value by name and cast it to an <code>long</code> or 
+         * return the given default.
+         * 
+         * @param name of the value to cast
+         * @param def the default value if none is named
+         * @return an long value
+         */
+        public final long longValue(String name, long def) {
+            if (containsKey(name)) {
+            	return JSON.N(get(name)).longValue();
+            } else {
+            	return def;
+            }
+        }
+        /**
+         * Access a value by name and cast it to an <code>BigDecimal</code>.
+         * 
+         * @param name of the value
+         * @return a decimal value
+         * @throws if there is no <code>BigDecimal</code> value by that named
+         */
+        public final BigDecimal getDecimal(String name) {
+            return JSON.D(get(name));
+        }
+        /**
+         * Access a value by name and cast it to an <code>BigDecimal</code> 
+         * or return the given default.
+         * 
+         * @param name of the value to cast
+         * @param def the default value if none is named
+         * @return an decimal value
+         */
+        public final BigDecimal getDecimal(String name, BigDecimal def) {
+            if (containsKey(name)) {
+            	return JSON.D(get(name));
+            } else {
+            	return def;
+            }
+        }
+        /**
+         * ...
+         * 
+         * @param name
+         * @return
+
+         */
+        public final Double getDouble(String name) {
+            return (JSON.F(get(name)));
+        }
+        /**
+         * ...
+         * 
+         * @param name
+         * @param def
+         * @return
+         */
+        public final double doubleValue(String name, double def) {
+            if (containsKey(name)) {
+            	return JSON.N(get(name)).doubleValue();
+            } else {
+            	return def;
+            }
+        }
+        /**
+         * ...
+         * 
+         * @param name
+         * @return
+
+         */
+        public final Boolean getBoolean(String name) {
+            return (JSON.B(get(name)));
+        }
+        /**
+         * ...
+         * 
+         * @param name
+         * @param def
+         * @return
+         */
+        public final boolean booleanValue(String name, boolean def) {
+            if (containsKey(name)) {
+            	return JSON.B(get(name)).booleanValue();
+            } else {
+            	return def;
+        	} 
+        }
+        /**
+         * ...
+         * 
+         * @param name
+         * @return
+
+         */
+        public final String getString(String name) {
+            return (JSON.S(get(name)));
+        }
+        /**
+         * ...
+         * 
+         * @param name
+         * @param def
+         * @return
+         */
+        public final String getString(String name, String def) {
+            if (containsKey(name)) {
+                return JSON.S(get(name)); 
+            } else {
+            	return def;
+        	} 
+        }
+        /**
+         * ...
+         * 
+         * @param name
+         * @return
+
+         */
+        public final Array getArray(String name) {
+            return (JSON.A(get(name)));
+        }
+        /**
+         * ...
+         * 
+         * @param name
+         * @param def
+         * @return
+         */
+        public final Array getArray(String name, JSON.Array def) {
+            if (containsKey(name)) {
+                return (JSON.A(get(name))); 
+            } else {
+            	return def;
+        	} 
+        }
+        /**
+         * ...
+         * 
+         * @param name
+         * @return
+
+         */
+        public final Object getObject(String name) {
+            return (JSON.O(get(name)));
+        }
+        /**
+         * ...
+         * 
+         * @param name
+         * @param def
+         * @return
+         */
+        public final Object getObject(String name, JSON.Object def) {
+            if (containsKey(name)) {
+            	return (JSON.O(get(name))); 
+            } else {
+            	return def;
+        	} 
+        }
+        protected transient java.lang.Object[] _names = null;
+        /**
+         * Return the names of this object sorted, cached until a name is
+         * added or removed. The array returned must not be modified.
+         * 
+         * @return the sorted names
+         */
+        public final java.lang.Object[] names() {
+            java.lang.Object[] names = _names;
+            if (names == null || names.length != size()) {
+                names = keySet().toArray();
+                Arrays.sort(names);
+                _names = names;
+            }
+            return names;
+        }
+        protected static final int COMPACT = 8;
+        protected boolean _hashed = false;
+        protected int _count = 0;
+        protected java.lang.Object[] _members = null;
+        protected final int index(java.lang.Object name) {
+            java.lang.Object[] members = _members;
+            for (int i = 0, n = _count * 2; i < n; i += 2) {
+                if (members[i] == name)
+                    return i;
+            }
+            if (name == null)
+                return -1;
+            for (int i = 0, n = _count * 2; i < n; i += 2) {
+                if (name.equals(members[i]))
+                    return i;
+            }
+            return -1;
+        }
+        public int size() {
+            return _hashed ? super.size() : _count;
+        }
+        public boolean isEmpty() {
+            return _hashed ? super.isEmpty() : _count == 0;
+        }
+        public java.lang.Object get(java.lang.Object key) {
+            if (_hashed)
+                return super.get(key);
+
+            int i = index(key);
+            return (i < 0) ? null : _members[i + 1];
+        }
+        public boolean containsKey(java.lang.Object key) {
+            return _hashed ? super.containsKey(key) : index(key) > -1;
+        }
+        public boolean containsValue(java.lang.Object value) {
+            if (_hashed)
+                return super.containsValue(value);
+
+            for (int i = 1, n = _count * 2; i < n; i += 2) {
+                if (value == null ?
+                    _members[i] == null : value.equals(_members[i]))
+                    return true;
+            }
+            return false;
+        }
+        public java.lang.Object put(java.lang.Object key, java.lang.Object value) {
+            if (_hashed) {
+                if (_names != null && !super.containsKey(key))
+                    _names = null;
+                return super.put(key, value);
+            }
+            int i = index(key);
+            if (i > -1) {
+                java.lang.Object previous = _members[i + 1];
+                _members[i + 1] = value;
+                return previous;
+            }
+            _names = null;
+            if (_count == COMPACT) {
+                for (i = 0; i < _count * 2; i += 2)
+                    super.put(_members[i], _members[i + 1]);
+                _hashed = true;
+                _count = 0;
+                _members = null;
+                return super.put(key, value);
+            }
+            if (_members == null)
+                _members = new java.lang.Object[COMPACT];
+            else if (_members.length == _count * 2) {
+                java.lang.Object[] members = new java.lang.Object[COMPACT * 2];
+                System.arraycopy(_members, 0, members, 0, _count * 2);
+                _members = members;
+            }
+            _members[_count * 2] = key;
+            _members[_count * 2 + 1] = value;
+            _count++;
+            return null;
+        }
+        public void putAll(Map map) {
+            Iterator it = map.entrySet().iterator();
+            Map.Entry entry;
+            while (it.hasNext()) {
+                entry = (Map.Entry) it.next();
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+        public java.lang.Object remove(java.lang.Object key) {
+            if (_hashed) {
+                _names = null;
+                return super.remove(key);
+            }
+            int i = index(key);
+            if (i < 0)
+                return null;
+
+            _names = null;
+            java.lang.Object previous = _members[i + 1];
+            _count--;
+            System.arraycopy(_members, i + 2, _members, i, _count * 2 - i);
+            _members[_count * 2] = null;
+            _members[_count * 2 + 1] = null;
+            return previous;
+        }
+        public void clear() {
+            _names = null;
+            compact();
+        }
+        /**
+         * Empty the inherited table and the compact array, without calling
+         * any method an extension of this class may override.
+         */
+        protected final void compact() {
+            if (_hashed) {
+                super.clear();
+                _hashed = false;
+            }
+            _count = 0;
+            _members = null;
+        }
+        public java.lang.Object clone() {
+            JSON.Object o = (JSON.Object) super.clone();
+            if (!_hashed) {
+                // HashMap.clone copied the compact members in the table
+                o._hashed = true;
+                java.lang.Object[] members = (_members == null) ?
+                    null : (java.lang.Object[]) _members.clone();
+                o.compact();
+                o._members = members;
+                o._count = _count;
+            }
+            return o;
+        }
+        public Set keySet() {
+            return _hashed ? super.keySet() : new Members(0);
+        }
+        public Collection values() {
+            return _hashed ? super.values() : new Values();
+        }
+        public Set entrySet() {
+            return _hashed ? super.entrySet() : new Members(2);
+        }
+        // the Map methods of Java 8 that HashMap implements on its table,
+        // implemented with the ones above as Map does, so that they see
+        // the compact members and those extensions of this class keep
+        // elsewhere.
+        public java.lang.Object getOrDefault(
+            java.lang.Object key, java.lang.Object def
+            ) {
+            java.lang.Object value = get(key);
+            return (value != null || containsKey(key)) ? value : def;
+        }
+        public void forEach(BiConsumer action) {
+            Iterator it = entrySet().iterator();
+            Map.Entry e;
+            while (it.hasNext()) {
+                e = (Map.Entry) it.next();
+                action.accept(e.getKey(), e.getValue());
+            }
+        }
+        public void replaceAll(BiFunction function) {
+            Iterator it = entrySet().iterator();
+            Map.Entry e;
+            while (it.hasNext()) {
+                e = (Map.Entry) it.next();
+                put(e.getKey(), function.apply(e.getKey(), e.getValue()));
+            }
+        }
+        public java.lang.Object putIfAbsent(
+            java.lang.Object key, java.lang.Object value
+            ) {
+            java.lang.Object current = get(key);
+            return (current == null) ? put(key, value) : current;
+        }
+        public boolean remove(java.lang.Object key, java.lang.Object value) {
+            java.lang.Object current = get(key);
+            if ((current == null ? value == null : current.equals(value)) && (
+                current != null || containsKey(key)
+                )) {
+                remove(key);
+                return true;
+            }
+            return false;
+        }
+        public java.lang.Object replace(
+            java.lang.Object key, java.lang.Object value
+            ) {
+            java.lang.Object current = get(key);
+            return (current != null || containsKey(key)) ?
+                put(key, value) : null;
+        }
+        public boolean replace(
+            java.lang.Object key, java.lang.Object old, java.lang.Object value
+            ) {
+            java.lang.Object current = get(key);
+            if ((current == null ? old == null : current.equals(old)) && (
+                current != null || containsKey(key)
+                )) {
+                put(key, value);
+                return true;
+            }
+            return false;
+        }
+        public java.lang.Object computeIfAbsent(
+            java.lang.Object key, Function function
+            ) {
+            java.lang.Object value = get(key);
+            if (value == null) {
+                value = function.apply(key);
+                if (value != null)
+                    put(key, value);
+            }
+            return value;
+        }
+        public java.lang.Object computeIfPresent(
+            java.lang.Object key, BiFunction function
+            ) {
+            java.lang.Object value = get(key);
+            if (value == null)
+                return null;
+
+            value = function.apply(key, value);
+            if (value == null)
+                remove(key);
+            else
+                put(key, value);
+            return value;
+        }
+        public java.lang.Object compute(
+            java.lang.Object key, BiFunction function
+            ) {
+            java.lang.Object value = function.apply(key, get(key));
+            if (value != null)
+                put(key, value);
+            else if (containsKey(key))
+                remove(key);
+            return value;
+        }
+        public java.lang.Object merge(
+            java.lang.Object key, java.lang.Object value, BiFunction function
+            ) {
+            if (value == null)
+                throw new NullPointerException();
+
+            java.lang.Object current = get(key);
+            if (current != null)
+                value = function.apply(current, value);
+            if (value == null)
+                remove(key);
+            else
+                put(key, value);
+            return value;
+        }
+        protected final class Member implements Map.Entry {
+            protected int index;
+            protected Member(int index) {
+                this.index = index;
+            }
+            public final java.lang.Object getKey() {
+                return _members[index];
+            }
+            public final java.lang.Object getValue() {
+                return _members[index + 1];
+            }
+            public final java.lang.Object setValue(java.lang.Object value) {
+                java.lang.Object previous = _members[index + 1];
+                _members[index + 1] = value;
+                return previous;
+            }
+            public final boolean equals(java.lang.Object o) {
+                if (!(o instanceof Map.Entry))
+                    return false;
+
+                Map.Entry e = (Map.Entry) o;
+                java.lang.Object k = getKey(), v = getValue();
+                return (k == null ?
+                    e.getKey() == null : k.equals(e.getKey())
+                    ) && (v == null ?
+                    e.getValue() == null : v.equals(e.getValue())
+                    );
+            }
+            public final int hashCode() {
+                java.lang.Object k = getKey(), v = getValue();
+                return (k == null ? 0 : k.hashCode()) ^
+                    (v == null ? 0 : v.hashCode());
+            }
+            public final String toString() {
+                return getKey() + "=" + getValue();
+            }
+        }
+        protected final class Cursor implements Iterator {
+            protected int kind;
+            protected int next = 0;
+            protected boolean removable = false;
+            protected Cursor(int kind) {
+                this.kind = kind;
+            }
+            public final boolean hasNext() {
+                return next < _count * 2;
+            }
+            public final java.lang.Object next() {
+                if (next >= _count * 2)
+                    throw new NoSuchElementException();
+
+                next += 2;
+                removable = true;
+                if (kind == 2)
+                    return new Member(next - 2);
+
+                return _members[next - 2 + kind];
+            }
+            public final void remove() {
+                if (!removable)
+                    throw new IllegalStateException();
+
+                removable = false;
+                next -= 2;
+                JSON.Object.this.remove(_members[next]);
+            }
+        }
+        protected final class Members extends AbstractSet {
+            protected int kind;
+            protected Members(int kind) {
+                this.kind = kind;
+            }
+            public final int size() {
+                return JSON.Object.this.size();
+            }
+            public final Iterator iterator() {
+                if (_hashed)
+                    return (kind == 2 ?
+                        JSON.Object.super.entrySet() :
+                        JSON.Object.super.keySet()
+                        ).iterator();
+
+                return new Cursor(kind);
+            }
+            public final boolean contains(java.lang.Object o) {
+                if (kind == 0)
+                    return containsKey(o);
+
+                if (!(o instanceof Map.Entry))
+                    return false;
+
+                Map.Entry e = (Map.Entry) o;
+                java.lang.Object v = get(e.getKey());
+                return containsKey(e.getKey()) && (v == null ?
+                    e.getValue() == null : v.equals(e.getValue())
+                    );
+            }
+            public final void clear() {
+                JSON.Object.this.clear();
+            }
+        }
+        protected final class Values extends AbstractCollection {
+            public final int size() {
+                return JSON.Object.this.size();
+            }
+            public final Iterator iterator() {
+                if (_hashed)
+                    return JSON.Object.super.values().iterator();
+
+                return new Cursor(1);
+            }
+            public final void clear() {
+                JSON.Object.this.clear();
+            }
+        }
+        public final StringBuilder toJSON(StringBuilder sb, String indent) {
+            return outline(sb, this, Objects.iter(names()), indent);
+        }
+        public final StringBuilder toJSON(StringBuilder sb) {
+        	return strb(sb, this, Objects.iter(names()));
+        }
+        /**
+         * ...
+         */
+        public final String toString() {
+        	return strb(new StringBuilder(), this, Objects.iter(names())).toString();
+        }
+
+    }
+    
+    /**
+     * An extension of ArrayList with type-casting convenience methods
      * that throw <code>JSON.Error</code> or return a typed object.
      * 
      * @h3 Synopsis
      * 
      * @pre try {
-     *    JSON.Object map = (new JSON()).object("{" +
-     *        "\"nothing\": null," +
-     *        "\"a boolean\": true," +
-     *        "\"an integer\": 2," +
-     *        "\"a big decimal\": +1234567.89," +
-     *        "\"a double float\": -123456789e-4," +
-     *        "\"unicode string"\: \"hello world!\", "+
-     *        "\"a list\": [null,true,1,2.0,3e+3]" +
-     *        "\"another map\": {}" +
-     *        "}");
-     *    Boolean b = map.getBoolean("test");
-     *    Integer i = map.getInteger("an integer");
-     *    BigDecimal d = map.getDecimal("a big decimal");
-     *    Double r = map.getDouble("a double float");
-     *    String s = map.getString("unicode string");
-     *    JSON.Array a = map.getArray("a list");
-     *    JSON.Object o = map.getObject("another map");
+     *    JSON.Array list = (new JSON()).array(
+     *        "[null, true, 1, 3.0, 1234e-2, \"test\", [], {}]"
+     *    );
+     *    Object o = list.getObject(0); 
+     *    Boolean b = list.getBoolean(1);
+     *    Integer i = list.getInteger(2);
+     *    BigDecimal d = list.getDecimal(3);
+     *    Double r = list.getDouble(4);
+     *    JSON.Array a = list.getArray(5);
+     *    JSON.Object o = list.getObject(6);
+     *    Boolean b = list.getArray(5).getBoolean(2);
      *} catch (JSON.Error e) {
      *    System.out.println(e.jstr());
      *}
      * 
-     * The convenience is double. At runtime it distinguishes a JSON
-     * type value error from other type casting allow programs to be
-     * executed like a scripting language against to access a dynamic  
-     * object model and continue in Java.
-     * 
-     * @p The second advantage for developper is trivial but practical:
-     * most java IDE support autocompletion and namespace browsing by
-     * type. Not having to break the chain for "manual" type casting
-     * helps a lot and make the whole a lot clearer to read and debug. 
+     * @p ...
      */
-    public static class Object 
-    extends HashMap // <String,java.lang.Object> 
-    implements Native {
-        public final void add (String name, java.lang.Object value) {
-            if (containsKey(name)) {
-                java.lang.Object curr = get(name);
-                if (curr instanceof JSON.Array) {
-                    ((JSON.Array) curr).add(value);
-                } else {
-                    put(name, JSON.list(curr, value));
-                }
+    public static class Array extends ArrayList implements Native {
+        /**
+         * Access an <code>Number</code> value by index.
+         * 
+         * @param index of the value to access
+         * @return an numeric value
+         * @throws if there is no <code>Number</code> value at that index
+         */
+        public final Number getNumber(int index) {
+            return JSON.N(get(index));
+        }
+        /**
+         * ...
+         * 
+         * @param index
+         * @return
+
+         */
+        public final Integer getInteger(int index) {
+            return (JSON.I(get(index)));
+        }
+        /**
+         * ...
+         * 
+         * @param index
+         * @param def
+         * @return
+         */
+        public final int intValue(int index, int def) {
+            if (index < size()) {
+            	return JSON.N(get(index)).intValue();
             } else {
-                put(name, value);
-            }
+            	return def;
+            } 
         }
         /**
-         * Access an <code>Number</code> value by name.
+         * ...
          * 
-         * @param name of the value to access
-         * @return an numeric value
-         * @throws if there is no <code>Number</code> value by that named
+         * @param index
+         * @param def
+         * @return
          */
-        public final Number getNumber(String name) {
-            return JSON.N(get(name));
+        public final long longValue(int index, long def) {
+            if (index < size()) {
+            	return JSON.N(get(index)).longValue();
+            } else {
+            	return def;
+            } 
         }
         /**
-         * Access an <code>Integer</code> value by name.
+         * ...
          * 
-         * @param name of the value to access
-         * @return an integer value
-         * @throws if there is no <code>Integer</code> value by that named
+         * @param index
+         * @return
+
          */
-        public final Integer getInteger(String name) {
-            return JSON.I(get(name));
+        public final BigDecimal getDecimal(int index) {
+            return JSON.D(get(index));
         }
         /**
-         * Access a value by name and cast it to an <code>int</code> or return 
-         * the given default.
+         * ...
          * 
-         * @param name of the value to cast
-         * @param def the default value if none is named
-         * @return an integer value
+         * @param index
+         * @param def
+         * @return
          */
-        public final int intValue(String name, int def) {
-            if (containsKey(name)) {
-            	return JSON.N(get(name)).intValue();
+        public final BigDecimal getDecimal(int index, BigDecimal def) {
+            if (index < size()) {
+            	return JSON.D(get(index));
             } else {
             	return def;
-            }
+            } 
         }
         /**
-         * Access a value by name and cast it to an <code>long</code> or 
-         * return the given default.
+         * ...
          * 
-         * @param name of the value to cast
-         * @param def the default value if none is named
-         * @return an long value
+         * @param index
+         * @return
+
          */
-        public final long longValue(String name, long def) {
-            if (containsKey(name)) {
-            	return JSON.N(get(name)).longValue();
+        public final Double getDouble(int index) {
+            return (JSON.F(get(index)));
+        }
+        /**
+         * ...
+         * 
+         * @param index
+         * @param def
+         * @return
+         */
+        public final double doubleValue(int index, double def) {
+            if (index < size()) {
+            	return JSON.N(get(index)).doubleValue();
             } else {
             	return def;
-            }
+            } 
         }
         /**
-         * Access a value by name and cast it to an <code>BigDecimal</code>.
+         * ...
          * 
-         * @param name of the value
-         * @return a decimal value
-         * @throws if there is no <code>BigDecimal</code> value by that named
+         * @param index
+         * @return
+
          */
-        public final BigDecimal getDecimal(String name) {
-            return JSON.D(get(name));
+        public final Boolean getBoolean(int index) {
+            return (JSON.B(get(index)));
         }
         /**
-         * Access a value by name and cast it to an <code>BigDecimal</code> 
-         * or return the given default.
+         * ...
+         * 
+         * @param index
+         * @param def
+         * @return
+         */
+        public final boolean booleanValue(int index, boolean def) {
+            if (index < size()) {
+            	return JSON.B(get(index)).booleanValue();
+            } else {
+            	return def;
+            } 
+        }
+        /**
+         * ...
+         * 
+         * @param index
+         * @return
+         */
+        public final String getString(int index) {
+            return (JSON.S(get(index)));
+        }
+        /**
+         * ...
          * 
-         * @param name of the value to cast
-         * @param def the default value if none is named
-         * @return an decimal value
+         * @param index
+         * @param def
+         * @return
          */
-        public final BigDecimal getDecimal(String name, BigDecimal def) {
-            if (containsKey(name)) {
-            	return JSON.D(get(name));
+        public final String getString(int index, String def) {
+            if (index < size()) {
+            	return JSON.S(get(index));
             } else {
             	return def;
-            }
+            } 
         }
         /**
          * ...
          * 
-         * @param name
+         * @param index
          * @return
 
          */
-        public final Double getDouble(String name) {
-            return (JSON.F(get(name)));
+        public final Array getArray(int index) {
+            return (JSON.A(get(index)));
         }
         /**
          * ...
          * 
-         * @param name
+         * @param index
          * @param def
          * @return
          */
-        public final double doubleValue(String name, double def) {
-            if (containsKey(name)) {
-            	return JSON.N(get(name)).doubleValue();
+        public final Array getArray(int index, JSON.Array def) {
+            if (index < size()) {
+                return (JSON.A(get(index))); 
             } else {
             	return def;
-            }
+            } 
         }
         /**
          * ...
          * 
-         * @param name
+         * @param index
          * @return
 
          */
-        public final Boolean getBoolean(String name) {
-            return (JSON.B(get(name)));
+        public final JSON.Object getObject(int index) {
+            return (JSON.O(get(index)));
         }
         /**
          * ...
          * 
-         * @param name
+         * @param index
          * @param def
          * @return
          */
-        public final boolean booleanValue(String name, boolean def) {
-            if (containsKey(name)) {
-            	return JSON.B(get(name)).booleanValue();
+        public final JSON.Object getObject(int index, JSON.Object def) {
+            if (index < size()) {
+                return (JSON.O(get(index))); 
             } else {
             	return def;
-        	} 
+            } 
+        }
+        public final StringBuilder toJSON(StringBuilder sb, String indent) {
+        	return outline(sb, this.iterator(), indent);
+        }
+        public final StringBuilder toJSON(StringBuilder sb) {
+        	return strb(sb, this.iterator());
         }
         /**
          * ...
-         * 
-         * @param name
-         * @return
+         */
+        public final String toString() {
+            return strb(new StringBuilder(), this.iterator()).toString();
+        }
+    }
+
+    /**
+     * A <code>JSON.Array</code> of numbers of the same type packed in an
+     * array of <code>int</code>, <code>long</code> or <code>double</code>,
+     * or of decimals, boxed only when accessed as objects.
+     *
+     * @h3 Synopsis
+     *
+     * @pre JSON.Parser parser = new JSON.Parser();
+     *parser.numbers = 16;
+     *JSON.Array list = parser.array(bytes, 0, bytes.length);
+     *if (list instanceof JSON.Numbers) {
+     *    JSON.Numbers series = (JSON.Numbers) list;
+     *    double sum = 0.0;
+     *    for (int i = 0, n = series.size(); i < n; i++)
+     *        sum += series.doubleAt(i);
+     *}
+     *
+     * @p A parser with its <code>numbers</code> field set packs arrays of
+     * at least that many elements that are all <code>Integer</code>, all
+     * <code>Integer</code> or <code>Long</code>, all <code>Double</code>,
+     * or all <code>BigDecimal</code> of less than 19 digits and 0 to 18 
+     * decimals, and boxes them back to the same types and values. The 
+     * decimals, which the parser makes of literals with a fraction and 
+     * no exponent, are packed as unscaled <code>long</code>s and their
+     * scales, so that <code>1.50</code> is boxed back with two decimals
+     * and <code>0.1</code> without the error of a <code>double</code>. 
+     * Arrays that mix decimals with integers are not packed. 
+     * 
+     * @p Methods that only read elements use the packed array, 
+     * <code>JSON.strb</code> and <code>JSON.Writer</code> serialize it 
+     * without boxing, decimals of less than 1e-6 excepted. Any other 
+     * method, streams included, boxes all elements in the inherited list
+     * first, as <code>JSON.Lazy</code> decodes all members.
+     */
+    public static class Numbers extends JSON.Array {
+        protected int[] ints = null;
+        protected long[] longs = null;
+        protected double[] doubles = null;
+        protected int[] scales = null;
+        protected int count;
+        protected boolean inflated = false;
+        public Numbers(int[] ints, int count) {
+            this.ints = ints;
+            this.count = count;
+        }
+        public Numbers(long[] longs, int count) {
+            this.longs = longs;
+            this.count = count;
+        }
+        public Numbers(double[] doubles, int count) {
+            this.doubles = doubles;
+            this.count = count;
+        }
+        /**
+         * Instanciate a list of decimals.
+         *
+         * @param unscaled values of the decimals
+         * @param scales of the decimals, from 0 to 18
+         * @param count of decimals
+         */
+        public Numbers(long[] unscaled, int[] scales, int count) {
+            this.longs = unscaled;
+            this.scales = scales;
+            this.count = count;
+        }
+        /**
+         * Pack a list of numbers of the same type, or return it as it is.
+         *
+         * @param list to pack
+         * @return a new <code>JSON.Numbers</code> or the list
+         */
+        public static final JSON.Array pack(JSON.Array list) {
+            int n = list.size(), kind = 0;
+            java.lang.Object item;
+            for (int i = 0; i < n; i++) {
+                item = list.get(i);
+                if (item instanceof Integer) {
+                    if (kind == 0) kind = 1;
+                    else if (kind == 3) return list;
+                } else if (item instanceof Long) {
+                    if (kind < 2) kind = 2;
+                    else if (kind == 3) return list;
+                } else if (item instanceof Double) {
+                    if (kind == 0) kind = 3;
+                    else if (kind != 3) return list;
+                } else if (item instanceof BigDecimal) {
+                    BigDecimal decimal = (BigDecimal) item;
+                    if (
+                        decimal.scale() < 0 || decimal.scale() > 18 || 
+                        decimal.precision() > 18
+                        )
+                        return list;
+                    else if (kind == 0) kind = 4;
+                    else if (kind != 4) return list;
+                } else
+                    return list;
+            }
+            switch (kind) {
+            case 1: {
+                int[] ints = new int[n];
+                for (int i = 0; i < n; i++)
+                    ints[i] = ((Integer) list.get(i)).intValue();
+                return new Numbers(ints, n);
+            }
+            case 2: {
+                long[] longs = new long[n];
+                for (int i = 0; i < n; i++)
+                    longs[i] = ((Number) list.get(i)).longValue();
+                return new Numbers(longs, n);
+            }
+            case 3: {
+                double[] doubles = new double[n];
+                for (int i = 0; i < n; i++)
+                    doubles[i] = ((Double) list.get(i)).doubleValue();
+                return new Numbers(doubles, n);
+            }
+            case 4: {
+                long[] unscaled = new long[n];
+                int[] scales = new int[n];
+                BigDecimal decimal;
+                for (int i = 0; i < n; i++) {
+                    decimal = (BigDecimal) list.get(i);
+                    unscaled[i] = decimal.unscaledValue().longValue();
+                    scales[i] = decimal.scale();
+                }
+                return new Numbers(unscaled, scales, n);
+            }
+            }
+            return list;
+        }
+        protected final void check(int index) {
+            if (index < 0 || index >= count)
+                throw new IndexOutOfBoundsException(
+                    "Index: " + index + ", Size: " + count
+                    );
+        }
+        /**
+         * Access an element as an <code>int</code> without boxing it.
+         */
+        public final int intAt(int index) {
+            if (inflated)
+                return ((Number) super.get(index)).intValue();
+
+            check(index);
+            if (ints != null)
+                return ints[index];
+            else if (scales != null)
+                return (int) (longs[index] / _powers[scales[index]]);
+            else if (longs != null)
+                return (int) longs[index];
+            else
+                return (int) doubles[index];
+        }
+        /**
+         * Access an element as a <code>long</code> without boxing it.
+         */
+        public final long longAt(int index) {
+            if (inflated)
+                return ((Number) super.get(index)).longValue();
+
+            check(index);
+            if (ints != null)
+                return ints[index];
+            else if (scales != null)
+                return longs[index] / _powers[scales[index]];
+            else if (longs != null)
+                return longs[index];
+            else
+                return (long) doubles[index];
+        }
+        /**
+         * Access an element as a <code>double</code> without boxing it.
+         */
+        public final double doubleAt(int index) {
+            if (inflated)
+                return ((Number) super.get(index)).doubleValue();
+
+            check(index);
+            if (ints != null)
+                return ints[index];
+            else if (scales != null) {
+                long l = longs[index];
+                double d = Parser.doubleValue(Math.abs(l), -scales[index]);
+                if (Double.isNaN(d))
+                    return BigDecimal.valueOf(l, scales[index]).doubleValue();
+
+                return (l < 0) ? -d : d;
+            } else if (longs != null)
+                return longs[index];
+            else
+                return doubles[index];
+        }
+        public java.lang.Object get(int index) {
+            if (inflated)
+                return super.get(index);
+
+            check(index);
+            if (ints != null)
+                return Integer.valueOf(ints[index]);
+            else if (scales != null)
+                return BigDecimal.valueOf(longs[index], scales[index]);
+            else if (longs != null) {
+                long l = longs[index];
+                if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE)
+                    return Integer.valueOf((int) l);
+                else
+                    return Long.valueOf(l);
+            } else
+                return Double.valueOf(doubles[index]);
+        }
+        /**
+         * Box all elements not accessed yet in the inherited list.
+         */
+        public final void inflate() {
+            if (inflated)
+                return;
+
+            super.ensureCapacity(count);
+            for (int i = 0; i < count; i++)
+                super.add(get(i));
+            inflated = true;
+            ints = null;
+            longs = null;
+            doubles = null;
+            scales = null;
+        }
+        public int size() {
+            return inflated ? super.size() : count;
+        }
+        public boolean isEmpty() {
+            return inflated ? super.isEmpty() : count == 0;
+        }
+        public int indexOf(java.lang.Object o) {
+            if (inflated)
+                return super.indexOf(o);
+
+            for (int i = 0; i < count; i++)
+                if (get(i).equals(o))
+                    return i;
+            return -1;
+        }
+        public int lastIndexOf(java.lang.Object o) {
+            if (inflated)
+                return super.lastIndexOf(o);
+
+            for (int i = count - 1; i > -1; i--)
+                if (get(i).equals(o))
+                    return i;
+            return -1;
+        }
+        public boolean contains(java.lang.Object o) {
+            return indexOf(o) > -1;
+        }
+        public java.lang.Object[] toArray() {
+            if (inflated)
+                return super.toArray();
+
+            java.lang.Object[] array = new java.lang.Object[count];
+            for (int i = 0; i < count; i++)
+                array[i] = get(i);
+            return array;
+        }
+        public java.lang.Object[] toArray(java.lang.Object[] array) {
+            inflate(); return super.toArray(array);
+        }
+        public Iterator iterator() {
+            if (inflated)
+                return super.iterator();
+
+            return new Iterator() {
+                protected int next = 0;
+                public final boolean hasNext() {
+                    return next < size();
+                }
+                public final java.lang.Object next() {
+                    if (next >= size())
+                        throw new NoSuchElementException();
+                    return get(next++);
+                }
+                public final void remove() {
+                    if (next == 0)
+                        throw new IllegalStateException();
+                    Numbers.this.remove(--next);
+                }
+            };
+        }
+        public boolean equals(java.lang.Object o) {
+            if (inflated || !(o instanceof List))
+                return super.equals(o);
+
+            List list = (List) o;
+            if (list.size() != count)
+                return false;
+
+            for (int i = 0; i < count; i++)
+                if (!get(i).equals(list.get(i)))
+                    return false;
+            return true;
+        }
+        public int hashCode() {
+            if (inflated)
+                return super.hashCode();
+
+            int h = 1;
+            for (int i = 0; i < count; i++)
+                h = 31 * h + get(i).hashCode();
+            return h;
+        }
+        public boolean add(java.lang.Object o) {
+            inflate(); return super.add(o);
+        }
+        public void add(int index, java.lang.Object o) {
+            inflate(); super.add(index, o);
+        }
+        public boolean addAll(Collection c) {
+            inflate(); return super.addAll(c);
+        }
+        public boolean addAll(int index, Collection c) {
+            inflate(); return super.addAll(index, c);
+        }
+        public java.lang.Object set(int index, java.lang.Object o) {
+            inflate(); return super.set(index, o);
+        }
+        public java.lang.Object remove(int index) {
+            inflate(); return super.remove(index);
+        }
+        public boolean remove(java.lang.Object o) {
+            inflate(); return super.remove(o);
+        }
+        public boolean removeAll(Collection c) {
+            inflate(); return super.removeAll(c);
+        }
+        public boolean retainAll(Collection c) {
+            inflate(); return super.retainAll(c);
+        }
+        protected void removeRange(int from, int to) {
+            inflate(); super.removeRange(from, to);
+        }
+        public void clear() {
+            inflate(); super.clear();
+        }
+        public void ensureCapacity(int capacity) {
+            inflate(); super.ensureCapacity(capacity);
+        }
+        public void trimToSize() {
+            inflate(); super.trimToSize();
+        }
+        public ListIterator listIterator() {
+            inflate(); return super.listIterator();
+        }
+        public ListIterator listIterator(int index) {
+            inflate(); return super.listIterator(index);
+        }
+        public List subList(int from, int to) {
+            inflate(); return super.subList(from, to);
+        }
+        public java.lang.Object clone() {
+            inflate(); return super.clone();
+        }
+        public void forEach(Consumer action) {
+            if (inflated) {
+                super.forEach(action);
+                return;
+            }
+            for (int i = 0; i < count; i++)
+                action.accept(get(i));
+        }
+        public Spliterator spliterator() {
+            inflate(); return super.spliterator();
+        }
+        public boolean removeIf(Predicate filter) {
+            inflate(); return super.removeIf(filter);
+        }
+        public void replaceAll(UnaryOperator operator) {
+            inflate(); super.replaceAll(operator);
+        }
+        public void sort(Comparator comparator) {
+            inflate(); super.sort(comparator);
+        }
+        protected final StringBuilder strb(StringBuilder sb) {
+            if (inflated || count == 0)
+                return JSON.strb(sb, iterator());
+
+            sb.append('[');
+            for (int i = 0; i < count; i++) {
+                if (i > 0)
+                    sb.append(',');
+                if (ints != null)
+                    sb.append(ints[i]);
+                else if (scales != null)
+                    decimal(sb, longs[i], scales[i]);
+                else if (longs != null)
+                    sb.append(longs[i]);
+                else
+                    JSON.strb(sb, doubles[i], true);
+            }
+            sb.append(']');
+            return sb;
+        }
+        protected final void write(Writer out) throws IOException {
+            if (inflated || count == 0) {
+                out.array(iterator());
+                return;
+            }
+            out.begin('[');
+            for (int i = 0; i < count; i++) {
+                out.separate(i);
+                if (ints != null)
+                    out.integer(ints[i]);
+                else if (scales != null) {
+                    out.scratch.setLength(0);
+                    out.ascii(decimal(out.scratch, longs[i], scales[i]));
+                } else if (longs != null)
+                    out.integer(longs[i]);
+                else
+                    out.number(doubles[i], true);
+            }
+            out.end(']');
+        }
+    }
+
+    /**
+     * The interface of the immutable values returned by
+     * <code>JSON.freeze</code>, that may cache their canonical encoding.
+     */
+    public static interface Frozen extends Native {
+        /**
+         * @return the cached compact and canonical JSON string or
+         * <code>null</code> if this value does not cache it
+         */
+        public String json();
+        /**
+         * @return a copy of the cached compact and canonical UTF-8 bytes
+         * or <code>null</code> if this value does not cache them
+         */
+        public byte[] utf8();
+    }
+
+    /**
+     * An immutable <code>JSON.Object</code> of frozen values, with a hash
+     * code and sorted names computed once, that throws an
+     * <code>UnsupportedOperationException</code> when modified.
+     */
+    public static class FrozenObject extends JSON.Object implements Frozen {
+        protected final int hash;
+        protected final boolean root;
+        protected volatile String json = null;
+        protected volatile byte[] utf8 = null;
+        protected FrozenObject(Map map, boolean root) {
+            Iterator it = map.entrySet().iterator();
+            Map.Entry member;
+            while (it.hasNext()) {
+                member = (Map.Entry) it.next();
+                super.put(member.getKey(), freeze(member.getValue(), false));
+            }
+            this.hash = super.hashCode();
+            this.root = root;
+            names();
+        }
+        public final String json() {
+            if (!root)
+                return null;
+
+            String s = json;
+            if (s == null) {
+                s = strb(new StringBuilder(), this, names()).toString();
+                json = s;
+            }
+            return s;
+        }
+        public final byte[] utf8() {
+            byte[] bytes = encoded();
+            return (bytes == null) ? null : bytes.clone();
+        }
+        /**
+         * Return the cached UTF-8 bytes, shared and not copied.
+         */
+        protected final byte[] encoded() {
+            if (!root)
+                return null;
+
+            byte[] bytes = utf8;
+            if (bytes == null) {
+                bytes = Bytes.encode(json(), "UTF-8");
+                utf8 = bytes;
+            }
+            return bytes;
+        }
+        public final int hashCode() {
+            return hash;
+        }
+        public final boolean equals(java.lang.Object o) {
+            if (o == this)
+                return true;
+            else if (o instanceof FrozenObject && ((FrozenObject) o).hash != hash)
+                return false;
+            return super.equals(o);
+        }
+        public final java.lang.Object put(java.lang.Object key, java.lang.Object value) {
+            throw new UnsupportedOperationException();
+        }
+        public final void putAll(Map map) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object remove(java.lang.Object key) {
+            throw new UnsupportedOperationException();
+        }
+        public final void clear() {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object putIfAbsent(
+            java.lang.Object key, java.lang.Object value
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final boolean remove(java.lang.Object key, java.lang.Object value) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object replace(
+            java.lang.Object key, java.lang.Object value
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final boolean replace(
+            java.lang.Object key, java.lang.Object old, java.lang.Object value
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final void replaceAll(BiFunction function) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object computeIfAbsent(
+            java.lang.Object key, Function function
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object computeIfPresent(
+            java.lang.Object key, BiFunction function
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object compute(
+            java.lang.Object key, BiFunction function
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object merge(
+            java.lang.Object key, java.lang.Object value, BiFunction function
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object clone() {
+            return this;
+        }
+        public final Set keySet() {
+            return Collections.unmodifiableSet(super.keySet());
+        }
+        public final Collection values() {
+            return Collections.unmodifiableCollection(super.values());
+        }
+        public final Set entrySet() {
+            return Collections.unmodifiableMap(new AbstractMap() {
+                public Set entrySet() {
+                    return FrozenObject.super.entrySet();
+                }
+            }).entrySet();
+        }
+    }
+
+    /**
+     * An immutable <code>JSON.Array</code> of frozen values, with a hash
+     * code computed once, that throws an
+     * <code>UnsupportedOperationException</code> when modified.
+     */
+    public static class FrozenArray extends JSON.Array implements Frozen {
+        protected final int hash;
+        protected final boolean root;
+        protected volatile String json = null;
+        protected volatile byte[] utf8 = null;
+        protected FrozenArray(Iterator it, boolean root) {
+            while (it.hasNext())
+                super.add(freeze(it.next(), false));
+            super.trimToSize();
+            this.hash = super.hashCode();
+            this.root = root;
+        }
+        public final String json() {
+            if (!root)
+                return null;
+
+            String s = json;
+            if (s == null) {
+                s = strb(new StringBuilder(), iterator()).toString();
+                json = s;
+            }
+            return s;
+        }
+        public final byte[] utf8() {
+            byte[] bytes = encoded();
+            return (bytes == null) ? null : bytes.clone();
+        }
+        /**
+         * Return the cached UTF-8 bytes, shared and not copied.
+         */
+        protected final byte[] encoded() {
+            if (!root)
+                return null;
+
+            byte[] bytes = utf8;
+            if (bytes == null) {
+                bytes = Bytes.encode(json(), "UTF-8");
+                utf8 = bytes;
+            }
+            return bytes;
+        }
+        public final int hashCode() {
+            return hash;
+        }
+        public final boolean equals(java.lang.Object o) {
+            if (o == this)
+                return true;
+            else if (o instanceof FrozenArray && ((FrozenArray) o).hash != hash)
+                return false;
+            return super.equals(o);
+        }
+        public final boolean add(java.lang.Object o) {
+            throw new UnsupportedOperationException();
+        }
+        public final void add(int index, java.lang.Object o) {
+            throw new UnsupportedOperationException();
+        }
+        public final boolean addAll(Collection c) {
+            throw new UnsupportedOperationException();
+        }
+        public final boolean addAll(int index, Collection c) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object set(int index, java.lang.Object o) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object remove(int index) {
+            throw new UnsupportedOperationException();
+        }
+        public final boolean remove(java.lang.Object o) {
+            throw new UnsupportedOperationException();
+        }
+        public final boolean removeAll(Collection c) {
+            throw new UnsupportedOperationException();
+        }
+        public final boolean retainAll(Collection c) {
+            throw new UnsupportedOperationException();
+        }
+        protected final void removeRange(int from, int to) {
+            throw new UnsupportedOperationException();
+        }
+        public final void clear() {
+            throw new UnsupportedOperationException();
+        }
+        public final boolean removeIf(Predicate filter) {
+            throw new UnsupportedOperationException();
+        }
+        public final void replaceAll(UnaryOperator operator) {
+            throw new UnsupportedOperationException();
+        }
+        public final void sort(Comparator comparator) {
+            throw new UnsupportedOperationException();
+        }
+        public final List subList(int from, int to) {
+            return Collections.unmodifiableList(super.subList(from, to));
+        }
+        public final java.lang.Object clone() {
+            return this;
+        }
+    }
+
+    /**
+     * Return an immutable deep copy of a value that can be shared by
+     * threads without locking, with maps as <code>JSON.FrozenObject</code>
+     * and arrays, collections and iterators as <code>JSON.FrozenArray</code>.
+     *
+     * @pre JSON.Object catalog = (JSON.Object) JSON.freeze(
+     *    (new JSON.Parser()).object(bytes, 0, bytes.length)
+     *    );
+     *
+     * @p The object or array returned caches its compact and canonical
+     * encoding the first time it is serialized, so that
+     * <code>JSON.strb</code> and a <code>JSON.Writer</code> with sorted
+     * members and no indentation copy it instead of walking the tree
+     * again. Values already frozen are returned as they are, strings,
+     * numbers, booleans and other instances are shared with the copy.
+     *
+     * @param value to freeze
+     * @return a frozen copy
+     */
+    public static final java.lang.Object freeze(java.lang.Object value) {
+        return freeze(value, true);
+    }
+
+    protected static final java.lang.Object freeze(
+        java.lang.Object value, boolean root
+        ) {
+        if (value == null || value instanceof Frozen) {
+            return value;
+        } else if (value instanceof Map) {
+            return new FrozenObject((Map) value, root);
+        }
+        Iterator it;
+        if (value instanceof Iterator)
+            it = (Iterator) value;
+        else if (value instanceof Iterable)
+            it = ((Iterable) value).iterator();
+        else if (value instanceof java.lang.Object[])
+            it = Objects.iter((java.lang.Object[]) value);
+        else if (value instanceof NativeArray)
+            it = new _jsElements((NativeArray) value);
+        else if (value instanceof NativeObject) {
+            NativeObject object = (NativeObject) value;
+            String[] names = _jsNames(object, false);
+            JSON.Object map = new JSON.Object();
+            for (int i = 0; i < names.length; i++)
+                map.put(names[i], _jsGet(object, names[i]));
+            return freeze(map, root);
+        } else if (value instanceof NativeJavaObject) {
+            return freeze(((NativeJavaObject) value).unwrap(), root);
+        } else if (value.getClass().isArray()) {
+            int n = java.lang.reflect.Array.getLength(value);
+            java.lang.Object[] items = new java.lang.Object[n];
+            for (int i = 0; i < n; i++)
+                items[i] = java.lang.reflect.Array.get(value, i);
+            it = Objects.iter(items);
+        } else {
+            Codec codec = (Codec) _codecs.get(value.getClass());
+            if (codec == null)
+                return value;
 
-         */
-        public final String getString(String name) {
-            return (JSON.S(get(name)));
+            return freeze(codec.reflect(value), root);
         }
+        return new FrozenArray(it, root);
+    }
+
+    /**
+     * Return the UTF-8 bytes cached by a frozen value, shared and not
+     * copied, or <code>null</code>.
+     */
+    protected static final byte[] _frozen(java.lang.Object value) {
+        if (value instanceof FrozenObject)
+            return ((FrozenObject) value).encoded();
+        else if (value instanceof FrozenArray)
+            return ((FrozenArray) value).encoded();
+        return null;
+    }
+
+    /**
+     * An immutable <code>JSON.Object</code> stored in a hash array mapped
+     * trie, of which new versions share all the members not updated.
+     *
+     * @h3 Synopsis
+     *
+     * @pre JSON.Persistent base = new JSON.Persistent(defaults);
+     *JSON.Persistent context = base
+     *    .with("user", user)
+     *    .with("locale", "fr");
+     *JSON.Object copy = context.toObject();
+     *
+     * @p <code>with</code> and <code>without</code> return a new version
+     * of the object that copies only the nodes on the path to the member
+     * updated, at most eight arrays of 32 slots, instead of all the
+     * members as <code>clone</code> would. Members are read in a node per five bits
+     * of their name's hash code. Methods inherited from <code>Map</code>
+     * that modify it throw an <code>UnsupportedOperationException</code>,
+     * the values themselves are shared between versions as they are.
+     *
+     * @p <code>JSON.strb</code> and <code>JSON.Writer</code> walk the
+     * members of the trie, sorted once when they serialize canonical
+     * JSON, without looking up names.
+     */
+    public static class Persistent extends JSON.Object {
+        protected final Node root;
+        protected final int count;
+        protected transient Leaf[] _leaves = null;
         /**
-         * ...
-         * 
-         * @param name
-         * @param def
-         * @return
+         * Instanciate an empty persistent object.
          */
-        public final String getString(String name, String def) {
-            if (containsKey(name)) {
-                return JSON.S(get(name)); 
-            } else {
-            	return def;
-        	} 
+        public Persistent() {
+            this(null, 0);
         }
         /**
-         * ...
-         * 
-         * @param name
-         * @return
-
+         * Instanciate a persistent object with the members of a map.
+         *
+         * @param map to copy
          */
-        public final Array getArray(String name) {
-            return (JSON.A(get(name)));
+        public Persistent(Map map) {
+            if (map instanceof Persistent) {
+                root = ((Persistent) map).root;
+                count = ((Persistent) map).count;
+                return;
+            }
+            Node node = null;
+            Iterator it = map.entrySet().iterator();
+            Map.Entry member;
+            Leaf leaf;
+            while (it.hasNext()) {
+                member = (Map.Entry) it.next();
+                leaf = new Leaf(member.getKey(), member.getValue());
+                node = (node == null) ?
+                    new Node(bit(leaf.hash, 0), new java.lang.Object[]{leaf}) :
+                    assoc(node, 0, leaf);
+            }
+            root = node;
+            count = map.size();
+        }
+        protected Persistent(Node root, int count) {
+            this.root = root;
+            this.count = count;
         }
         /**
-         * ...
-         * 
-         * @param name
-         * @param def
-         * @return
+         * Return a version of this object with a member set.
+         *
+         * @param name of the member
+         * @param value of the member
+         * @return a new version or this object if the value is the same
          */
-        public final Array getArray(String name, JSON.Array def) {
-            if (containsKey(name)) {
-                return (JSON.A(get(name))); 
-            } else {
-            	return def;
-        	} 
+        public final Persistent with(java.lang.Object name, java.lang.Object value) {
+            Leaf leaf = new Leaf(name, value);
+            if (root == null)
+                return new Persistent(new Node(
+                    bit(leaf.hash, 0), new java.lang.Object[]{leaf}
+                    ), 1);
+
+            Leaf previous = find(root, name, leaf.hash);
+            if (previous != null && previous.value == value)
+                return this;
+
+            return new Persistent(
+                assoc(root, 0, leaf), (previous == null) ? count + 1 : count
+                );
         }
         /**
-         * ...
-         * 
-         * @param name
-         * @return
-
+         * Return a version of this object without a member.
+         *
+         * @param name of the member
+         * @return a new version or this object if there is no such member
          */
-        public final Object getObject(String name) {
-            return (JSON.O(get(name)));
+        public final Persistent without(java.lang.Object name) {
+            int hash = hash(name);
+            if (find(root, name, hash) == null)
+                return this;
+
+            java.lang.Object node = dissoc(root, 0, name, hash);
+            if (node instanceof Leaf)
+                node = new Node(
+                    bit(((Leaf) node).hash, 0), new java.lang.Object[]{node}
+                    );
+            return new Persistent((Node) node, count - 1);
         }
         /**
-         * ...
-         * 
-         * @param name
-         * @param def
-         * @return
+         * Copy the members of this object in a new mutable one.
+         *
+         * @return a new <code>JSON.Object</code>
          */
-        public final Object getObject(String name, JSON.Object def) {
-            if (containsKey(name)) {
-            	return (JSON.O(get(name))); 
-            } else {
-            	return def;
-        	} 
+        public final JSON.Object toObject() {
+            JSON.Object object = new JSON.Object();
+            Leaf leaf;
+            for (Iterator it = new Leaves(root, 2); it.hasNext();) {
+                leaf = (Leaf) it.next();
+                object.put(leaf.key, leaf.value);
+            }
+            return object;
         }
-        public final StringBuilder toJSON(StringBuilder sb, String indent) {
-            java.lang.Object[] names = keySet().toArray();
-            Arrays.sort(names);
-            return outline(sb, this, Objects.iter(names), indent);
+        protected static final int hash(java.lang.Object key) {
+            int h = (key == null) ? 0 : key.hashCode();
+            return h ^ (h >>> 16);
         }
-        public final StringBuilder toJSON(StringBuilder sb) {
-            java.lang.Object[] names = keySet().toArray();
-            Arrays.sort(names);
-        	return strb(sb, this, Objects.iter(names));
+        protected static final int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & 31);
+        }
+        protected static final boolean same(java.lang.Object a, java.lang.Object b) {
+            return (a == null) ? b == null : a.equals(b);
+        }
+        protected static final Leaf find(
+            Node node, java.lang.Object key, int hash
+            ) {
+            java.lang.Object slot;
+            Leaf leaf;
+            for (int shift = 0; node != null; shift += 5) {
+                if (shift > 30) {
+                    for (int i = 0; i < node.slots.length; i++) {
+                        leaf = (Leaf) node.slots[i];
+                        if (same(key, leaf.key))
+                            return leaf;
+                    }
+                    return null;
+                }
+                int bit = bit(hash, shift);
+                if ((node.bitmap & bit) == 0)
+                    return null;
+
+                slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+                if (slot instanceof Leaf) {
+                    leaf = (Leaf) slot;
+                    return (leaf.hash == hash && same(key, leaf.key)) ? leaf : null;
+                }
+                node = (Node) slot;
+            }
+            return null;
         }
         /**
-         * ...
+         * Return a copy of a node with a leaf set, at a depth of
+         * <code>shift / 5</code> or in a list of leaves of the same hash.
          */
-        public final String toString() {
-            java.lang.Object[] names = keySet().toArray();
-            Arrays.sort(names);
-        	return strb(new StringBuilder(), this, Objects.iter(names)).toString();
+        protected static final Node assoc(Node node, int shift, Leaf leaf) {
+            java.lang.Object[] slots = node.slots, copy;
+            int n = slots.length;
+            if (shift > 30) {
+                for (int i = 0; i < n; i++)
+                    if (same(leaf.key, ((Leaf) slots[i]).key)) {
+                        copy = slots.clone();
+                        copy[i] = leaf;
+                        return new Node(0, copy);
+                    }
+                copy = new java.lang.Object[n + 1];
+                System.arraycopy(slots, 0, copy, 0, n);
+                copy[n] = leaf;
+                return new Node(0, copy);
+            }
+            int bit = bit(leaf.hash, shift);
+            int i = Integer.bitCount(node.bitmap & (bit - 1));
+            if ((node.bitmap & bit) == 0) {
+                copy = new java.lang.Object[n + 1];
+                System.arraycopy(slots, 0, copy, 0, i);
+                copy[i] = leaf;
+                System.arraycopy(slots, i, copy, i + 1, n - i);
+                return new Node(node.bitmap | bit, copy);
+            }
+            java.lang.Object slot = slots[i];
+            copy = slots.clone();
+            if (slot instanceof Node)
+                copy[i] = assoc((Node) slot, shift + 5, leaf);
+            else if (
+                ((Leaf) slot).hash == leaf.hash && same(leaf.key, ((Leaf) slot).key)
+                )
+                copy[i] = leaf;
+            else
+                copy[i] = merge(shift + 5, (Leaf) slot, leaf);
+            return new Node(node.bitmap, copy);
         }
+        protected static final Node merge(int shift, Leaf a, Leaf b) {
+            if (shift > 30)
+                return new Node(0, new java.lang.Object[]{a, b});
 
-    }
-    
-    /**
-     * An extension of ArrayList with type-casting convenience methods
-     * that throw <code>JSON.Error</code> or return a typed object.
-     * 
-     * @h3 Synopsis
-     * 
-     * @pre try {
-     *    JSON.Array list = (new JSON()).array(
-     *        "[null, true, 1, 3.0, 1234e-2, \"test\", [], {}]"
-     *    );
-     *    Object o = list.getObject(0); 
-     *    Boolean b = list.getBoolean(1);
-     *    Integer i = list.getInteger(2);
-     *    BigDecimal d = list.getDecimal(3);
-     *    Double r = list.getDouble(4);
-     *    JSON.Array a = list.getArray(5);
-     *    JSON.Object o = list.getObject(6);
-     *    Boolean b = list.getArray(5).getBoolean(2);
-     *} catch (JSON.Error e) {
-     *    System.out.println(e.jstr());
-     *}
-     * 
-     * @p ...
-     */
-    public static class Array extends ArrayList implements Native {
+            int ia = (a.hash >>> shift) & 31, ib = (b.hash >>> shift) & 31;
+            if (ia == ib)
+                return new Node(1 << ia, new java.lang.Object[]{
+                    merge(shift + 5, a, b)
+                    });
+
+            return new Node((1 << ia) | (1 << ib), (ia < ib) ?
+                new java.lang.Object[]{a, b} : new java.lang.Object[]{b, a}
+                );
+        }
         /**
-         * Access an <code>Number</code> value by index.
-         * 
-         * @param index of the value to access
-         * @return an numeric value
-         * @throws if there is no <code>Number</code> value at that index
+         * Return a copy of a node without the leaf of a key it contains,
+         * the last leaf left in place of a node or <code>null</code>.
          */
-        public final Number getNumber(int index) {
-            return JSON.N(get(index));
+        protected static final java.lang.Object dissoc(
+            Node node, int shift, java.lang.Object key, int hash
+            ) {
+            java.lang.Object[] slots = node.slots;
+            int n = slots.length, i = 0;
+            java.lang.Object replaced = null;
+            if (shift > 30) {
+                while (!same(key, ((Leaf) slots[i]).key))
+                    i++;
+                if (n == 2)
+                    return slots[1 - i];
+
+                return new Node(0, remove(slots, i));
+            }
+            int bit = bit(hash, shift);
+            i = Integer.bitCount(node.bitmap & (bit - 1));
+            if (slots[i] instanceof Node)
+                replaced = dissoc((Node) slots[i], shift + 5, key, hash);
+            if (replaced == null) {
+                if (n == 1)
+                    return null;
+                else if (n == 2 && slots[1 - i] instanceof Leaf)
+                    return slots[1 - i];
+
+                return new Node(node.bitmap & ~bit, remove(slots, i));
+            } else if (n == 1 && replaced instanceof Leaf)
+                return replaced;
+
+            java.lang.Object[] copy = slots.clone();
+            copy[i] = replaced;
+            return new Node(node.bitmap, copy);
         }
-        /**
-         * ...
-         * 
-         * @param index
-         * @return
+        protected static final java.lang.Object[] remove(
+            java.lang.Object[] slots, int i
+            ) {
+            java.lang.Object[] copy = new java.lang.Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, i);
+            System.arraycopy(slots, i + 1, copy, i, copy.length - i);
+            return copy;
+        }
+        protected static final class Node implements java.io.Serializable {
+            protected final int bitmap;
+            protected final java.lang.Object[] slots;
+            protected Node(int bitmap, java.lang.Object[] slots) {
+                this.bitmap = bitmap;
+                this.slots = slots;
+            }
+        }
+        protected static final class Leaf
+            implements Map.Entry, java.io.Serializable {
+            protected final java.lang.Object key;
+            protected final java.lang.Object value;
+            protected final int hash;
+            protected Leaf(java.lang.Object key, java.lang.Object value) {
+                this.key = key;
+                this.value = value;
+                this.hash = Persistent.hash(key);
+            }
+            public final java.lang.Object getKey() {
+                return key;
+            }
+            public final java.lang.Object getValue() {
+                return value;
+            }
+            public final java.lang.Object setValue(java.lang.Object value) {
+                throw new UnsupportedOperationException();
+            }
+            public final boolean equals(java.lang.Object o) {
+                if (!(o instanceof Map.Entry))
+                    return false;
 
-         */
-        public final Integer getInteger(int index) {
-            return (JSON.I(get(index)));
+                Map.Entry e = (Map.Entry) o;
+                return same(key, e.getKey()) && same(value, e.getValue());
+            }
+            public final int hashCode() {
+                return (key == null ? 0 : key.hashCode()) ^
+                    (value == null ? 0 : value.hashCode());
+            }
+            public final String toString() {
+                return key + "=" + value;
+            }
         }
         /**
-         * ...
-         * 
-         * @param index
-         * @param def
-         * @return
+         * Iterate the names, values or leaves of a trie, depth first.
          */
-        public final int intValue(int index, int def) {
-            if (index < size()) {
-            	return JSON.N(get(index)).intValue();
-            } else {
-            	return def;
-            } 
+        protected static final class Leaves implements Iterator {
+            protected java.lang.Object[][] stack = new java.lang.Object[8][];
+            protected int[] positions = new int[8];
+            protected int depth = -1;
+            protected int kind;
+            protected Leaf next = null;
+            protected Leaves(Node root, int kind) {
+                this.kind = kind;
+                if (root != null) {
+                    depth = 0;
+                    stack[0] = root.slots;
+                    advance();
+                }
+            }
+            protected final void advance() {
+                java.lang.Object slot;
+                next = null;
+                while (depth > -1) {
+                    if (positions[depth] == stack[depth].length) {
+                        depth--;
+                        continue;
+                    }
+                    slot = stack[depth][positions[depth]++];
+                    if (slot instanceof Leaf) {
+                        next = (Leaf) slot;
+                        return;
+                    }
+                    depth++;
+                    stack[depth] = ((Node) slot).slots;
+                    positions[depth] = 0;
+                }
+            }
+            public final boolean hasNext() {
+                return next != null;
+            }
+            public final java.lang.Object next() {
+                Leaf leaf = next;
+                if (leaf == null)
+                    throw new NoSuchElementException();
+
+                advance();
+                return (kind == 0) ? leaf.key : (kind == 1) ? leaf.value : leaf;
+            }
+            public final void remove() {
+                throw new UnsupportedOperationException();
+            }
         }
+        protected static final Comparator _byName = new Comparator() {
+            public final int compare(java.lang.Object a, java.lang.Object b) {
+                return ((Comparable) ((Leaf) a).key).compareTo(((Leaf) b).key);
+            }
+        };
         /**
-         * ...
-         * 
-         * @param index
-         * @param def
-         * @return
+         * Return the leaves of this object sorted by name, cached.
          */
-        public final long longValue(int index, long def) {
-            if (index < size()) {
-            	return JSON.N(get(index)).longValue();
-            } else {
-            	return def;
-            } 
+        protected final Leaf[] leaves() {
+            Leaf[] leaves = _leaves;
+            if (leaves == null) {
+                leaves = new Leaf[count];
+                Iterator it = new Leaves(root, 2);
+                for (int i = 0; i < count; i++)
+                    leaves[i] = (Leaf) it.next();
+                Arrays.sort(leaves, _byName);
+                _leaves = leaves;
+            }
+            return leaves;
         }
-        /**
-         * ...
-         * 
-         * @param index
-         * @return
+        public final int size() {
+            return count;
+        }
+        public final boolean isEmpty() {
+            return count == 0;
+        }
+        public final java.lang.Object get(java.lang.Object key) {
+            Leaf leaf = find(root, key, hash(key));
+            return (leaf == null) ? null : leaf.value;
+        }
+        public final boolean containsKey(java.lang.Object key) {
+            return find(root, key, hash(key)) != null;
+        }
+        public final boolean containsValue(java.lang.Object value) {
+            for (Iterator it = new Leaves(root, 1); it.hasNext();)
+                if (same(value, it.next()))
+                    return true;
+            return false;
+        }
+        public final Set keySet() {
+            return new AbstractSet() {
+                public final int size() {
+                    return count;
+                }
+                public final Iterator iterator() {
+                    return new Leaves(root, 0);
+                }
+                public final boolean contains(java.lang.Object o) {
+                    return containsKey(o);
+                }
+            };
+        }
+        public final Collection values() {
+            return new AbstractCollection() {
+                public final int size() {
+                    return count;
+                }
+                public final Iterator iterator() {
+                    return new Leaves(root, 1);
+                }
+            };
+        }
+        public final Set entrySet() {
+            return new AbstractSet() {
+                public final int size() {
+                    return count;
+                }
+                public final Iterator iterator() {
+                    return new Leaves(root, 2);
+                }
+                public final boolean contains(java.lang.Object o) {
+                    if (!(o instanceof Map.Entry))
+                        return false;
 
-         */
-        public final BigDecimal getDecimal(int index) {
-            return JSON.D(get(index));
+                    Map.Entry e = (Map.Entry) o;
+                    Leaf leaf = find(root, e.getKey(), hash(e.getKey()));
+                    return leaf != null && same(leaf.value, e.getValue());
+                }
+            };
         }
-        /**
-         * ...
-         * 
-         * @param index
-         * @param def
-         * @return
-         */
-        public final BigDecimal getDecimal(int index, BigDecimal def) {
-            if (index < size()) {
-            	return JSON.D(get(index));
-            } else {
-            	return def;
-            } 
+        public final java.lang.Object put(java.lang.Object key, java.lang.Object value) {
+            throw new UnsupportedOperationException();
         }
-        /**
-         * ...
-         * 
-         * @param index
-         * @return
+        public final void putAll(Map map) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object remove(java.lang.Object key) {
+            throw new UnsupportedOperationException();
+        }
+        public final void clear() {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object putIfAbsent(
+            java.lang.Object key, java.lang.Object value
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final boolean remove(
+            java.lang.Object key, java.lang.Object value
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object replace(
+            java.lang.Object key, java.lang.Object value
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final boolean replace(
+            java.lang.Object key, java.lang.Object old, java.lang.Object value
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final void replaceAll(BiFunction function) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object computeIfAbsent(
+            java.lang.Object key, Function function
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object computeIfPresent(
+            java.lang.Object key, BiFunction function
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object compute(
+            java.lang.Object key, BiFunction function
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object merge(
+            java.lang.Object key, java.lang.Object value, BiFunction function
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public final java.lang.Object clone() {
+            return this;
+        }
+        protected final StringBuilder strb(StringBuilder sb, boolean sorted) {
+            if (count == 0)
+                return sb.append(_object);
 
-         */
-        public final Double getDouble(int index) {
-            return (JSON.F(get(index)));
+            Iterator it = sorted ? Objects.iter((java.lang.Object[]) leaves()) : new Leaves(root, 2);
+            Leaf leaf;
+            sb.append('{');
+            for (int i = 0; it.hasNext(); i++) {
+                leaf = (Leaf) it.next();
+                if (i > 0)
+                    sb.append(',');
+                JSON.strb(sb, leaf.key, sorted);
+                sb.append(':');
+                JSON.strb(sb, leaf.value, sorted);
+            }
+            sb.append('}');
+            return sb;
+        }
+        protected final void write(Writer out) throws IOException {
+            if (count == 0) {
+                out.ascii(_object);
+                return;
+            }
+            Iterator it = out.sorted ? Objects.iter((java.lang.Object[]) leaves()) : new Leaves(root, 2);
+            Leaf leaf;
+            out.begin('{');
+            for (int i = 0; it.hasNext(); i++) {
+                leaf = (Leaf) it.next();
+                out.separate(i);
+                out.write(leaf.key);
+                out.colon();
+                out.write(leaf.value);
+            }
+            out.end('}');
+        }
+    }
+    
+    /**
+     * A structural index of UTF-8 encoded JSON bytes, the positions of
+     * their braces, brackets, colons, commas and quotes, built by one
+     * fast scan that creates no strings nor numbers.
+     * 
+     * @h3 Synopsis
+     * 
+     * @pre JSON.Object body = (new JSON.Parser()).lazy(bytes, 0, bytes.length);
+     *String id = body.getString("id"); // decodes only "id"
+     * 
+     * @p The scan checks the structure of the document and charges the 
+     * containers and iterations limits of the parser, one iteration for 
+     * each member and each element as <code>eval</code> does, and skips
+     * the same whitespaces. Literals are only 
+     * decoded when accessed and a malformed one is then reported as a 
+     * <code>RuntimeException</code> wrapping a <code>JSON.Error</code>.
+     * 
+     * @p The views of a tape share its decoder and are not thread safe.
+     */
+    public static class Tape {
+        
+        protected static final int TOP = 0;
+        protected static final int TOP_DONE = 1;
+        protected static final int NAME_FIRST = 2;
+        protected static final int NAME = 3;
+        protected static final int COLON = 4;
+        protected static final int VALUE = 5;
+        protected static final int VALUE_FIRST = 6;
+        protected static final int NEXT = 7;
+        
+        protected byte[] bytes;
+        protected int start;
+        protected int end;
+        protected int[] index = new int[64];
+        protected int[] jumps = new int[64];
+        protected int size = 0;
+        protected Parser decoder = new Parser();
+        
+        public Tape(byte[] json, int off, int len) {
+            bytes = json;
+            start = off;
+            end = off + len;
+            decoder.bytes = json;
+            decoder.start = off;
+            decoder.end = end;
+            decoder.buf = new StringBuilder();
+            decoder.chars = new char[64];
         }
-        /**
-         * ...
-         * 
-         * @param index
-         * @param def
-         * @return
-         */
-        public final double doubleValue(int index, double def) {
-            if (index < size()) {
-            	return JSON.N(get(index)).doubleValue();
-            } else {
-            	return def;
-            } 
+        
+        protected final void record(int position) {
+            if (size == index.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(index, 0, grown, 0, size);
+                index = grown;
+                grown = new int[size * 2];
+                System.arraycopy(jumps, 0, grown, 0, size);
+                jumps = grown;
+            }
+            index[size++] = position;
         }
+        
         /**
-         * ...
-         * 
-         * @param index
-         * @return
-
+         * Index the bytes of one JSON object or array, charging the limits 
+         * of the given parser or throwing a <code>JSON.Error</code>.
          */
-        public final Boolean getBoolean(int index) {
-            return (JSON.B(get(index)));
+        protected final void scan(Parser limits) throws Error {
+            byte[] in = bytes;
+            int[] opened = new int[16];
+            int[] states = new int[16];
+            int depth = 0, state = TOP, i, x;
+            boolean scalar = false;
+            for (i = start; i < end; i++) {
+                x = in[i];
+                switch (x) {
+                case '"':
+                    if (state == NAME_FIRST || state == NAME) {
+                        if (--limits.iterations < 0)
+                            throw new JSON.Error(Parser.ITERATIONS_OVERFLOW, i - start);
+                        state = COLON;
+                    } else if (state == VALUE || state == VALUE_FIRST) {
+                        if (state == VALUE_FIRST && --limits.iterations < 0)
+                            throw new JSON.Error(Parser.ITERATIONS_OVERFLOW, i - start);
+                        state = NEXT;
+                    } else
+                        throw new JSON.Error(Parser.UNEXPECTED_CHARACTER, i - start);
+                    record(i);
+                    for (i++; i < end; i++) {
+                        x = in[i];
+                        if (x == '"')
+                            break;
+                        else if (x == '\\')
+                            i++;
+                    }
+                    if (i >= end)
+                        throw new JSON.Error(Parser.UNEXPECTED_END, end - start);
+                    record(i);
+                    scalar = false;
+                    continue;
+                case '{': case '[':
+                    if (state == TOP || state == VALUE || state == VALUE_FIRST) {
+                        if (state == VALUE_FIRST && --limits.iterations < 0)
+                            throw new JSON.Error(Parser.ITERATIONS_OVERFLOW, i - start);
+                        if (--limits.containers < 0)
+                            throw new JSON.Error(Parser.CONTAINERS_OVERFLOW, i - start);
+                        if (depth == opened.length) {
+                            int[] grown = new int[depth * 2];
+                            System.arraycopy(opened, 0, grown, 0, depth);
+                            opened = grown;
+                            grown = new int[depth * 2];
+                            System.arraycopy(states, 0, grown, 0, depth);
+                            states = grown;
+                        }
+                        states[depth] = (state == TOP) ? TOP_DONE : NEXT;
+                        opened[depth++] = size;
+                        record(i);
+                        state = (x == '{') ? NAME_FIRST : VALUE_FIRST;
+                        scalar = false;
+                        continue;
+                    }
+                    throw new JSON.Error(Parser.UNEXPECTED_CHARACTER, i - start);
+                case '}': case ']':
+                    if (
+                        depth > 0 && (
+                            state == NEXT || 
+                            (x == '}' && state == NAME_FIRST) || 
+                            (x == ']' && state == VALUE_FIRST)
+                            ) &&
+                        in[index[opened[depth - 1]]] == (x == '}' ? '{' : '[')
+                        ) {
+                        jumps[opened[--depth]] = size;
+                        record(i);
+                        state = states[depth];
+                        scalar = false;
+                        if (state == TOP_DONE)
+                            return;
+                        
+                        continue;
+                    }
+                    throw new JSON.Error(
+                        (state == VALUE) ? Parser.VALUE_EXPECTED : Parser.UNEXPECTED_CHARACTER, 
+                        i - start
+                        );
+                case ':':
+                    if (state != COLON)
+                        throw new JSON.Error(Parser.UNEXPECTED_CHARACTER, i - start);
+                    record(i);
+                    state = VALUE;
+                    scalar = false;
+                    continue;
+                case ',':
+                    if (state != NEXT)
+                        throw new JSON.Error(Parser.VALUE_EXPECTED, i - start);
+                    record(i);
+                    if (in[index[opened[depth - 1]]] == '{') {
+                        state = NAME;
+                    } else {
+                        if (--limits.iterations < 0)
+                            throw new JSON.Error(Parser.ITERATIONS_OVERFLOW, i - start);
+                        state = VALUE;
+                    }
+                    scalar = false;
+                    continue;
+                case ' ': case '\t': case '\n': case 0x0B: case '\f': 
+                case '\r': case 0x1C: case 0x1D: case 0x1E: case 0x1F:
+                    scalar = false;
+                    continue;
+                default:
+                    if (scalar)
+                        continue;
+                    else if (state == VALUE || state == VALUE_FIRST) {
+                        if (state == VALUE_FIRST && --limits.iterations < 0)
+                            throw new JSON.Error(Parser.ITERATIONS_OVERFLOW, i - start);
+                        state = NEXT;
+                        scalar = true;
+                        continue;
+                    }
+                    throw new JSON.Error(Parser.UNEXPECTED_CHARACTER, i - start);
+                }
+            }
+            throw new JSON.Error(Parser.UNEXPECTED_END, end - start);
         }
+        
         /**
-         * ...
-         * 
-         * @param index
-         * @param def
-         * @return
+         * Return the position of the first byte of the value that follows
+         * the colon, comma or bracket at the given tape index.
          */
-        public final boolean booleanValue(int index, boolean def) {
-            if (index < size()) {
-            	return JSON.B(get(index)).booleanValue();
-            } else {
-            	return def;
-            } 
+        protected final int position(int k) {
+            int p = index[k] + 1, x;
+            while (p < end) {
+                x = bytes[p];
+                if (x == ' ' || (x > 8 && x < 14) || (x > 27 && x < 32))
+                    p++;
+                else
+                    break;
+            }
+            return p;
         }
+        
         /**
-         * ...
-         * 
-         * @param index
-         * @return
+         * Return the tape index of the comma or closing bracket that 
+         * follows the value after the given tape index.
          */
-        public final String getString(int index) {
-            return (JSON.S(get(index)));
+        protected final int after(int k) {
+            switch (bytes[position(k)]) {
+            case '{': case '[':
+                return jumps[k + 1] + 1;
+            case '"':
+                return k + 3;
+            default:
+                return k + 1;
+            }
         }
-        /**
-         * ...
-         * 
-         * @param index
-         * @param def
-         * @return
-         */
-        public final String getString(int index, String def) {
-            if (index < size()) {
-            	return JSON.S(get(index));
-            } else {
-            	return def;
-            } 
+        
+        protected final java.lang.Object value(int k) throws Error {
+            int p = position(k);
+            switch (bytes[p]) {
+            case '{':
+                return new Lazy(this, k + 1);
+            case '[':
+                return array(k + 1);
+            default:
+                decoder.at = p;
+                decoder.b = bytes[p] & 0xff;
+                return decoder.utf8Value();
+            }
         }
-        /**
-         * ...
-         * 
-         * @param index
-         * @return
-
-         */
-        public final Array getArray(int index) {
-            return (JSON.A(get(index)));
+        
+        protected final JSON.Array array(int k) throws Error {
+            JSON.Array a = new JSON.Array();
+            if (bytes[index[k + 1]] == ']' && position(k) == index[k + 1])
+                return a;
+            
+            while (true) {
+                a.add(value(k));
+                k = after(k);
+                if (bytes[index[k]] == ']')
+                    return a;
+            }
+        }
+        
+        protected final String name(int k) throws Error {
+            decoder.at = index[k] + 1;
+            return decoder.utf8Symbol();
+        }
+        
+        protected final boolean named(int k, String name) throws Error {
+            int from = index[k] + 1, to = index[k + 1], l = name.length();
+            if (to - from < l) 
+                return false;
+            
+            int x;
+            for (int i = 0; i < l; i++) {
+                x = bytes[from + i];
+                if (x < 0 || x == '\\') 
+                    return name.equals(name(k));
+                else if (x != name.charAt(i))
+                    return false;
+            }
+            return from + l == to;
         }
+        
         /**
-         * ...
-         * 
-         * @param index
-         * @param def
-         * @return
+         * Return the tape index of the colon of the first member named 
+         * <code>name</code> in the object opened at <code>k</code>, or -1.
          */
-        public final Array getArray(int index, JSON.Array def) {
-            if (index < size()) {
-                return (JSON.A(get(index))); 
-            } else {
-            	return def;
-            } 
+        protected final int find(int k, String name) throws Error {
+            if (bytes[index[k + 1]] == '}')
+                return -1;
+            
+            k++;
+            while (true) {
+                if (named(k, name))
+                    return k + 2;
+                
+                k = after(k + 2);
+                if (bytes[index[k]] == '}')
+                    return -1;
+                
+                k++;
+            }
+        }
+        
+    }
+    
+    /**
+     * A <code>JSON.Object</code> view of an object indexed by a 
+     * <code>JSON.Tape</code> that decodes members when they are first
+     * accessed by name, and all of them at once by any other method than
+     * <code>get</code> and <code>containsKey</code>.
+     * 
+     * @p Duplicate names resolve to the first member found.
+     */
+    public static class Lazy extends JSON.Object {
+        protected Tape tape;
+        protected int open;
+        protected boolean inflated = false;
+        public Lazy(Tape tape, int open) {
+            this.tape = tape;
+            this.open = open;
+        }
+        public java.lang.Object get(java.lang.Object name) {
+            if (inflated || super.containsKey(name)) 
+                return super.get(name);
+            
+            return load(name);
+        }
+        public boolean containsKey(java.lang.Object name) {
+            if (inflated || super.containsKey(name)) 
+                return super.containsKey(name);
+            
+            load(name);
+            return super.containsKey(name);
+        }
+        protected final java.lang.Object load(java.lang.Object name) {
+            if (!(name instanceof String))
+                return null;
+            
+            try {
+                int k = tape.find(open, (String) name);
+                if (k < 0)
+                    return null;
+                
+                java.lang.Object value = tape.value(k);
+                super.put(name, value);
+                return value;
+            } catch (JSON.Error e) {
+                throw new RuntimeException(e);
+            }
         }
         /**
-         * ...
-         * 
-         * @param index
-         * @return
-
+         * Decode all members not accessed yet.
          */
-        public final JSON.Object getObject(int index) {
-            return (JSON.O(get(index)));
+        public final void inflate() {
+            if (inflated)
+                return;
+            
+            inflated = true;
+            Tape t = tape;
+            int k = open;
+            if (t.bytes[t.index[k + 1]] == '}')
+                return;
+            
+            String name;
+            try {
+                k++;
+                while (true) {
+                    name = t.name(k);
+                    if (!super.containsKey(name))
+                        super.put(name, t.value(k + 2));
+                    k = t.after(k + 2);
+                    if (t.bytes[t.index[k]] == '}')
+                        return;
+                    
+                    k++;
+                }
+            } catch (JSON.Error e) {
+                throw new RuntimeException(e);
+            }
+        }
+        public int size() {
+            inflate(); return super.size();
+        }
+        public boolean isEmpty() {
+            inflate(); return super.isEmpty();
+        }
+        public boolean containsValue(java.lang.Object value) {
+            inflate(); return super.containsValue(value);
+        }
+        public java.lang.Object put(java.lang.Object name, java.lang.Object value) {
+            inflate(); return super.put(name, value);
         }
+        public void putAll(Map map) {
+            inflate(); super.putAll(map);
+        }
+        public java.lang.Object remove(java.lang.Object name) {
+            inflate(); return super.remove(name);
+        }
+        public void clear() {
+            inflated = true; super.clear();
+        }
+        public Set keySet() {
+            inflate(); return super.keySet();
+        }
+        public Collection values() {
+            inflate(); return super.values();
+        }
+        public Set entrySet() {
+            inflate(); return super.entrySet();
+        }
+        public java.lang.Object clone() {
+            inflate(); return super.clone();
+        }
+    }
+    
+    /**
+     * A compiled set of paths to project JSON documents on, each path a 
+     * sequence of member names or array indexes separated by slashes, 
+     * with <code>*</code> matching any name or index. 
+     * 
+     * @h3 Synopsis
+     * 
+     * @pre JSON.Projection paths = new JSON.Projection(
+     *    "/user/id", "/items/0/sku", "/tags/*"
+     *    );
+     *JSON.Object o = (JSON.Object) JSON.parsers().project(
+     *    paths, bytes, 0, bytes.length
+     *    );
+     *
+     * @p As in a JSON pointer, <code>~1</code> and <code>~0</code> 
+     * escape the slash and the tilde in names and the empty path selects 
+     * the whole document. A projection is immutable and can be shared by 
+     * parsers in distinct threads.
+     */
+    public static class Projection {
+        protected boolean all = false;
+        protected String[] names = new String[0];
+        protected int[] indexes = new int[0];
+        protected Projection[] members = new Projection[0];
+        protected Projection any = null;
+        
         /**
-         * ...
+         * Compile a projection on the given paths.
          * 
-         * @param index
-         * @param def
-         * @return
+         * @param paths to select
          */
-        public final JSON.Object getObject(int index, JSON.Object def) {
-            if (index < size()) {
-                return (JSON.O(get(index))); 
-            } else {
-            	return def;
-            } 
+        public Projection(String ... paths) {
+            ArrayList selected = new ArrayList();
+            for (int i = 0; i < paths.length; i++)
+                selected.add(split(paths[i]));
+            compile(selected);
         }
-        public final StringBuilder toJSON(StringBuilder sb, String indent) {
-        	return outline(sb, this.iterator(), indent);
+        
+        protected Projection(List selected) {
+            compile(selected);
         }
-        public final StringBuilder toJSON(StringBuilder sb) {
-        	return strb(sb, this.iterator());
+        
+        protected static final String[] split(String path) {
+            ArrayList segments = new ArrayList();
+            int i = path.startsWith("/") ? 1 : 0, j;
+            if (path.length() > i) {
+                while (true) {
+                    j = path.indexOf('/', i);
+                    segments.add(path.substring(
+                        i, j < 0 ? path.length() : j
+                        ).replace("~1", "/").replace("~0", "~"));
+                    if (j < 0)
+                        break;
+                    i = j + 1;
+                }
+            }
+            return (String[]) segments.toArray(new String[segments.size()]);
+        }
+        
+        protected final void compile(List selected) {
+            String[] path;
+            ArrayList heads = new ArrayList();
+            ArrayList tails = new ArrayList();
+            for (int i = 0, n = selected.size(); i < n; i++) {
+                path = (String[]) selected.get(i);
+                if (path.length == 0) {
+                    all = true;
+                    return;
+                } else if (!path[0].equals("*") && !heads.contains(path[0]))
+                    heads.add(path[0]);
+            }
+            names = new String[heads.size()];
+            indexes = new int[names.length];
+            members = new Projection[names.length];
+            for (int k = 0; k < names.length; k++) {
+                names[k] = (String) heads.get(k);
+                indexes[k] = index(names[k]);
+                members[k] = new Projection(tails(selected, names[k]));
+            }
+            tails = tails(selected, "*");
+            if (tails.size() > 0)
+                any = new Projection(tails);
         }
+        
+        protected static final ArrayList tails(List selected, String head) {
+            String[] path, tail;
+            ArrayList tails = new ArrayList();
+            for (int i = 0, n = selected.size(); i < n; i++) {
+                path = (String[]) selected.get(i);
+                if (path[0].equals(head) || path[0].equals("*")) {
+                    tail = new String[path.length - 1];
+                    System.arraycopy(path, 1, tail, 0, tail.length);
+                    tails.add(tail);
+                }
+            }
+            return tails;
+        }
+        
+        protected static final int index(String name) {
+            int l = name.length();
+            if (l == 0 || l > 9 || (l > 1 && name.charAt(0) == '0'))
+                return -1;
+            
+            int index = 0;
+            for (int i = 0; i < l; i++) {
+                char c = name.charAt(i);
+                if (c < '0' || c > '9')
+                    return -1;
+                index = index * 10 + c - '0';
+            }
+            return index;
+        }
+        
         /**
-         * ...
+         * Return the position of the member named by the given chars or -1.
          */
-        public final String toString() {
-            return strb(new StringBuilder(), this.iterator()).toString();
+        protected final int member(char[] chars, int len) {
+            String name;
+            int i;
+            for (int k = 0; k < names.length; k++) {
+                name = names[k];
+                if (name.length() == len) {
+                    for (i = 0; i < len && name.charAt(i) == chars[i]; i++);
+                    if (i == len)
+                        return k;
+                }
+            }
+            return -1;
+        }
+        
+        /**
+         * Return the projection of the element at the given index or null.
+         */
+        protected final Projection element(int index) {
+            for (int k = 0; k < indexes.length; k++)
+                if (indexes[k] == index)
+                    return members[k];
+            return any;
         }
     }
 
@@ -1307,8 +6663,35 @@ public final class JSON {
      */
     public static final java.lang.Object decode(String encoded) 
     throws Error {
-        return (new JSON.Parser()).eval(encoded);
+        return parsers().eval(encoded);
+    };
+    
+    protected static final ThreadLocal _parsers = new ThreadLocal() {
+        protected java.lang.Object initialValue() {
+            return new Parser();
+        }
     };
+    
+    /**
+     * Return the reusable parser of the current thread with its limits 
+     * restored, or a new parser if that one is already evaluating. 
+     * 
+     * @pre JSON.Object o = JSON.parsers().object(bytes, 0, bytes.length);
+     * 
+     * @p The parser returned should not be kept nor passed to another 
+     * thread, it keeps its scratch buffers and symbols table between
+     * evaluations.
+     * 
+     * @return a <code>JSON.Parser</code>
+     */
+    public static final Parser parsers() {
+        Parser parser = (Parser) _parsers.get();
+        if (parser.it != null || parser.bytes != null)
+            return new Parser();
+        
+        parser.reset();
+        return parser;
+    }
     /**
      * 
      * @param query
@@ -1341,27 +6724,428 @@ public final class JSON {
                 json.put(name, value);
             }
         }
-    }
-    /**
-     * Try to reflect all public fields of <code>value</code> as a 
-     * <code>JSON.Object</code>.
-     * 
-     * @param value to reflect
-     * @return a <code>JSON.Object</code>
-     */
-    public static final java.lang.Object reflect(
-        java.lang.Object value
-        ) {
-        JSON.Object proxy = new JSON.Object();
-        java.lang.reflect.Field[] fields = value.getClass().getFields();
-        for (int i = 0; i < fields.length; i++) {
+    }
+    /**
+     * Try to reflect all public instance fields of <code>value</code> as
+     * a <code>JSON.Object</code>.
+     * 
+     * @p The fields of its class are inspected once but the class is not
+     * registered, instances are serialized as before unless its codec is
+     * registered by <code>JSON.codec</code>.
+     * 
+     * @param value to reflect
+     * @return a <code>JSON.Object</code>
+     */
+    public static final java.lang.Object reflect(
+        java.lang.Object value
+        ) {
+        Class type = value.getClass();
+        Codec codec = (Codec) _codecs.get(type);
+        if (codec == null)
+            codec = inspect(type);
+        return codec.reflect(value);
+    }
+    
+    protected static final ConcurrentHashMap _codecs = 
+        new ConcurrentHashMap();
+    
+    protected static final ConcurrentHashMap _inspected = 
+        new ConcurrentHashMap();
+    
+    /**
+     * Return the codec of a class, inspected once and not registered.
+     */
+    protected static final Codec inspect(Class type) {
+        Codec codec = (Codec) _inspected.get(type);
+        if (codec == null) {
+            codec = new Codec(type);
+            Codec inspected = (Codec) _inspected.putIfAbsent(type, codec);
+            if (inspected != null)
+                codec = inspected;
+        }
+        return codec;
+    }
+    
+    /**
+     * Return the codec of a class, inspected once and registered, so that
+     * its instances are serialized as objects of their public fields by
+     * <code>JSON.strb</code>, <code>JSON.Writer</code>, 
+     * <code>JSON.xjson</code> and <code>JSON.pprint</code>. 
+     * 
+     * @pre JSON.codec(Point.class);
+     *String json = JSON.encode(new Point(1, 2));
+     *Point point = (Point) JSON.codec(Point.class).decode(
+     *    (new JSON.Parser()).object(json)
+     *    );
+     * 
+     * @param type to register
+     * @return the <code>JSON.Codec</code> of that class
+     */
+    public static final Codec codec(Class type) {
+        Codec codec = (Codec) _codecs.get(type);
+        if (codec == null) {
+            codec = inspect(type);
+            Codec registered = (Codec) _codecs.putIfAbsent(type, codec);
+            if (registered != null)
+                codec = registered;
+        }
+        return codec;
+    }
+    
+    /**
+     * The public fields of a class, sorted by name with their UTF-8 
+     * encoded JSON names, to serialize its instances without building
+     * a <code>JSON.Object</code> first and to decode them from one.
+     * 
+     * @p Fields are read and set with method handles unreflected once,
+     * typed to read and set <code>int</code>, <code>long</code>, 
+     * <code>double</code> and <code>boolean</code> fields without boxing. 
+     * Instances are created by a handle of the public constructor without
+     * arguments. Static fields and fields that cannot be read are skipped,
+     * final fields are not decoded.
+     */
+    public static class Codec {
+        protected static final int OBJECT = 0;
+        protected static final int STRING = 1;
+        protected static final int INTEGER = 2;
+        protected static final int LONG = 3;
+        protected static final int SHORT = 4;
+        protected static final int BYTE = 5;
+        protected static final int DOUBLE = 6;
+        protected static final int FLOAT = 7;
+        protected static final int BOOLEAN = 8;
+        protected static final int CHARACTER = 9;
+        public final Class type;
+        protected final Class[] types;
+        protected final String[] names;
+        protected final byte[][] prefixes;
+        protected final int[] kinds;
+        protected final MethodHandle[] getters;
+        protected final MethodHandle[] setters;
+        protected final MethodHandle constructor;
+        protected Codec(Class type) {
+            this.type = type;
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            java.lang.reflect.Field[] all = type.getFields();
+            HashMap byName = new HashMap();
+            for (int i = 0; i < all.length; i++)
+                byName.put(all[i].getName(), all[i]);
+            java.lang.Object[] sorted = byName.keySet().toArray();
+            Arrays.sort(sorted);
+            ArrayList readable = new ArrayList(sorted.length);
+            ArrayList read = new ArrayList(sorted.length);
+            ArrayList written = new ArrayList(sorted.length);
+            for (int i = 0; i < sorted.length; i++) {
+                java.lang.reflect.Field field = 
+                    (java.lang.reflect.Field) byName.get(sorted[i]);
+                int modifiers = field.getModifiers();
+                if (java.lang.reflect.Modifier.isStatic(modifiers))
+                    continue;
+
+                try {
+                    read.add(getter(lookup, field));
+                } catch (IllegalAccessException e) {
+                    continue;
+                }
+                readable.add(field);
+                if (java.lang.reflect.Modifier.isFinal(modifiers))
+                    written.add(null);
+                else try {
+                    written.add(setter(lookup, field));
+                } catch (IllegalAccessException e) {
+                    written.add(null);
+                }
+            }
+            int n = readable.size();
+            types = new Class[n];
+            names = new String[n];
+            prefixes = new byte[n][];
+            kinds = new int[n];
+            getters = (MethodHandle[]) read.toArray(new MethodHandle[n]);
+            setters = (MethodHandle[]) written.toArray(new MethodHandle[n]);
+            for (int i = 0; i < n; i++) {
+                java.lang.reflect.Field field = 
+                    (java.lang.reflect.Field) readable.get(i);
+                types[i] = field.getType();
+                names[i] = field.getName();
+                prefixes[i] = Bytes.encode(
+                    JSON.strb(new StringBuilder(","), names[i])
+                        .append(':').toString(), 
+                    Bytes.UTF8
+                    );
+                kinds[i] = kind(types[i]);
+            }
+            MethodHandle create;
+            try {
+                create = lookup.unreflectConstructor(
+                    type.getConstructor()
+                    ).asType(MethodType.methodType(java.lang.Object.class));
+            } catch (Exception e) {
+                create = null;
+            }
+            constructor = create;
+        }
+        protected static final int kind(Class type) {
+            if (type == String.class) return STRING;
+            else if (type == Integer.TYPE) return INTEGER;
+            else if (type == Long.TYPE) return LONG;
+            else if (type == Short.TYPE) return SHORT;
+            else if (type == Byte.TYPE) return BYTE;
+            else if (type == Double.TYPE) return DOUBLE;
+            else if (type == Float.TYPE) return FLOAT;
+            else if (type == Boolean.TYPE) return BOOLEAN;
+            else if (type == Character.TYPE) return CHARACTER;
+            else return OBJECT;
+        }
+        /**
+         * The type through which a field is read and set: itself for the
+         * primitives written without boxing, else <code>Object</code>.
+         */
+        protected static final Class erased(Class type) {
+            switch (kind(type)) {
+            case INTEGER: case LONG: case DOUBLE: case BOOLEAN:
+                return type;
+            default:
+                return java.lang.Object.class;
+            }
+        }
+        protected static final MethodHandle getter(
+            MethodHandles.Lookup lookup, java.lang.reflect.Field field
+            ) throws IllegalAccessException {
+            return lookup.unreflectGetter(field).asType(MethodType.methodType(
+                erased(field.getType()), java.lang.Object.class
+                ));
+        }
+        protected static final MethodHandle setter(
+            MethodHandles.Lookup lookup, java.lang.reflect.Field field
+            ) throws IllegalAccessException {
+            return lookup.unreflectSetter(field).asType(MethodType.methodType(
+                Void.TYPE, java.lang.Object.class, erased(field.getType())
+                ));
+        }
+        /**
+         * Return the public fields of an instance in a new 
+         * <code>JSON.Object</code>, skipping the ones that cannot be read.
+         * 
+         * @param value to reflect
+         * @return a <code>JSON.Object</code>
+         */
+        public final JSON.Object reflect(java.lang.Object value) {
+            JSON.Object proxy = new JSON.Object();
+            for (int i = 0; i < getters.length; i++) {
+                try {
+                    proxy.put(names[i], getters[i].invoke(value));
+                } catch (Throwable e) {
+                    continue;
+                }
+            }
+            return proxy;
+        }
+        /**
+         * Serialize the public fields of an instance, like the 
+         * <code>JSON.Object</code> returned by <code>reflect</code>.
+         */
+        public final StringBuilder strb(
+            StringBuilder sb, java.lang.Object value, boolean sorted
+            ) {
+            int n = 0;
+            for (int i = 0; i < getters.length; i++) {
+                MethodHandle getter = getters[i];
+                try {
+                    switch (kinds[i]) {
+                    case INTEGER: {
+                        int v = (int) getter.invokeExact(value);
+                        sb.append(n++ == 0 ? '{' : ',');
+                        JSON.strb(sb, names[i]).append(':').append(v);
+                        break;
+                    }
+                    case LONG: {
+                        long v = (long) getter.invokeExact(value);
+                        sb.append(n++ == 0 ? '{' : ',');
+                        JSON.strb(sb, names[i]).append(':').append(v);
+                        break;
+                    }
+                    case DOUBLE: {
+                        double v = (double) getter.invokeExact(value);
+                        sb.append(n++ == 0 ? '{' : ',');
+                        JSON.strb(JSON.strb(sb, names[i]).append(':'), v, true);
+                        break;
+                    }
+                    case BOOLEAN: {
+                        boolean v = (boolean) getter.invokeExact(value);
+                        sb.append(n++ == 0 ? '{' : ',');
+                        JSON.strb(sb, names[i]).append(':').append(
+                            v ? _true : _false
+                            );
+                        break;
+                    }
+                    default: {
+                        java.lang.Object v = 
+                            (java.lang.Object) getter.invokeExact(value);
+                        sb.append(n++ == 0 ? '{' : ',');
+                        JSON.strb(JSON.strb(sb, names[i]).append(':'), v, sorted);
+                    }
+                    }
+                } catch (Throwable e) {
+                    continue;
+                }
+            }
+            return (n == 0) ? sb.append(_object) : sb.append('}');
+        }
+        protected final void write(Writer writer, java.lang.Object value) 
+        throws IOException {
+            int n = 0;
+            for (int i = 0; i < getters.length; i++) {
+                MethodHandle getter = getters[i];
+                try {
+                    switch (kinds[i]) {
+                    case INTEGER: {
+                        int v = (int) getter.invokeExact(value);
+                        writer.prefix(prefixes[i], n++); writer.integer(v); 
+                        break;
+                    }
+                    case LONG: {
+                        long v = (long) getter.invokeExact(value);
+                        writer.prefix(prefixes[i], n++); writer.integer(v); 
+                        break;
+                    }
+                    case DOUBLE: {
+                        double v = (double) getter.invokeExact(value);
+                        writer.prefix(prefixes[i], n++); writer.number(v, true); 
+                        break;
+                    }
+                    case BOOLEAN: {
+                        boolean v = (boolean) getter.invokeExact(value);
+                        writer.prefix(prefixes[i], n++); 
+                        writer.ascii(v ? _true : _false); 
+                        break;
+                    }
+                    case STRING: {
+                        String v = (String) (java.lang.Object) getter.invokeExact(value);
+                        writer.prefix(prefixes[i], n++); 
+                        if (v == null)
+                            writer.ascii(_null);
+                        else
+                            writer.string(v); 
+                        break;
+                    }
+                    default: {
+                        java.lang.Object v = 
+                            (java.lang.Object) getter.invokeExact(value);
+                        writer.prefix(prefixes[i], n++); writer.write(v);
+                    }
+                    }
+                } catch (IOException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    continue;
+                }
+            }
+            writer.ascii(n == 0 ? _object : "}");
+        }
+        /**
+         * Decode a map of JSON values in a new instance of this codec's
+         * class, setting the public fields named in the map and leaving
+         * the others to their defaults.
+         * 
+         * @p Numbers are narrowed to the type of primitive fields, strings
+         * of one character set <code>char</code> fields, maps set the
+         * fields of a registered class with its own codec. Null values
+         * leave primitive fields unchanged.
+         * 
+         * @param map of JSON values
+         * @return a new instance
+         * @throws JSON.Error
+         */
+        public final java.lang.Object decode(Map map) throws Error {
+            if (constructor == null)
+                throw new JSON.Error(
+                    type.getName() + " has no public constructor without arguments"
+                    );
+            
+            java.lang.Object instance;
+            try {
+                instance = (java.lang.Object) constructor.invokeExact();
+            } catch (Throwable e) {
+                throw new JSON.Error(e.toString());
+            }
+            for (int i = 0; i < setters.length; i++) {
+                if (setters[i] == null)
+                    continue;
+                
+                java.lang.Object v = map.get(names[i]);
+                if (v == null && (kinds[i] != OBJECT && kinds[i] != STRING))
+                    continue;
+                
+                try {
+                    set(instance, i, v);
+                } catch (JSON.Error e) {
+                    e.jsonPath.add(0, names[i]);
+                    throw e;
+                }
+            }
+            return instance;
+        }
+        protected final void set(java.lang.Object instance, int i, java.lang.Object v) 
+        throws Error {
+            java.lang.Object set = v;
+            switch (kinds[i]) {
+            case STRING:
+                if (!(v == null || v instanceof String))
+                    throw new JSON.Error(STRING_TYPE_ERROR);
+                break;
+            case BOOLEAN:
+                if (!(v instanceof Boolean))
+                    throw new JSON.Error(BOOLEAN_TYPE_ERROR);
+                break;
+            case CHARACTER:
+                if (v instanceof String && ((String) v).length() == 1)
+                    set = Character.valueOf(((String) v).charAt(0));
+                else
+                    throw new JSON.Error(STRING_TYPE_ERROR);
+                break;
+            case OBJECT:
+                if (v == null || types[i].isInstance(v))
+                    break;
+                else if (v instanceof Map && _codecs.containsKey(types[i]))
+                    set = codec(types[i]).decode((Map) v);
+                else
+                    throw new JSON.Error(OBJECT_TYPE_ERROR);
+                break;
+            default:
+                if (!(v instanceof Number))
+                    throw new JSON.Error(NUMBER_TYPE_ERROR);
+            }
+            MethodHandle setter = setters[i];
             try {
-                proxy.put(fields[i].getName(), fields[i].get(value));
+                switch (kinds[i]) {
+                case INTEGER: 
+                    setter.invokeExact(instance, ((Number) v).intValue()); 
+                    return;
+                case LONG: 
+                    setter.invokeExact(instance, ((Number) v).longValue()); 
+                    return;
+                case DOUBLE: 
+                    setter.invokeExact(instance, ((Number) v).doubleValue()); 
+                    return;
+                case BOOLEAN: 
+                    setter.invokeExact(instance, ((Boolean) v).booleanValue()); 
+                    return;
+                case SHORT: 
+                    set = Short.valueOf(((Number) v).shortValue()); 
+                    break;
+                case BYTE: 
+                    set = Byte.valueOf(((Number) v).byteValue()); 
+                    break;
+                case FLOAT: 
+                    set = Float.valueOf(((Number) v).floatValue()); 
+                    break;
+                }
+                setter.invokeExact(instance, set);
             } catch (Throwable e) {
-                continue;
+                throw new JSON.Error(e.toString());
             }
         }
-        return proxy;
     }
     
     protected static final String _quote = "\\\"";
@@ -1373,11 +7157,25 @@ public final class JSON {
     protected static final String _ctrl_r = "\\r";
     protected static final String _ctrl_t = "\\t";
     
+    /**
+     * Append a quoted string, copying the runs of characters that need no 
+     * escape in bulk.
+     */
     protected static final StringBuilder strb(StringBuilder sb, String s) {
         if (s==null) {sb.append(_null); return sb;}
         sb.append('"');
-        CharacterIterator it = new StringCharacterIterator(s);
-        for (char c = it.first(); c != JSON._done; c = it.next()) {
+        int n = s.length(), run = 0;
+        char c;
+        for (int i = 0; i < n; i++) {
+            c = s.charAt(i);
+            if (c > 0x9f || (
+                c > 0x1f && c < 0x7f && c != '"' && c != '\\' && c != '/'
+                )) 
+                continue;
+            
+            if (i > run)
+                sb.append(s, run, i);
+            run = i + 1;
             switch(c) {
             case '"':  sb.append(_quote); break;
             case '\\': sb.append(_back); break;
@@ -1388,12 +7186,11 @@ public final class JSON {
             case '\r': sb.append(_ctrl_r); break;
             case '\t': sb.append(_ctrl_t); break;
             default: 
-                if (Character.isISOControl(c))
-                    unicode(sb, c);
-                else
-                    sb.append(c);
+                unicode(sb, c);
             }
         }
+        if (n > run)
+            sb.append(s, run, n);
         sb.append('"');
         return sb;
     }
@@ -1474,9 +7271,9 @@ public final class JSON {
     StringBuilder strb(StringBuilder sb, double[] doubles) {
         if (doubles.length > 0) { 
             sb.append('[');
-            sb.append(doubles[0]);
+            strb(sb, doubles[0], false);
             for (int i=1; i<doubles.length; i++) {
-                sb.append(','); sb.append(doubles[i]);
+                sb.append(','); strb(sb, doubles[i], false);
             }
             sb.append(']');
         } else
@@ -1537,6 +7334,12 @@ public final class JSON {
     protected static final StringBuilder strb(
         StringBuilder sb, Map map, Iterator it
         ) {
+        return strb(sb, map, it, true);
+    }
+    
+    protected static final StringBuilder strb(
+        StringBuilder sb, Map map, Iterator it, boolean sorted
+        ) {
         java.lang.Object key; 
         if (!it.hasNext()) {
             sb.append(_object);
@@ -1544,15 +7347,15 @@ public final class JSON {
         }
         sb.append('{');
         key = it.next();
-        strb(sb, key);
+        strb(sb, key, sorted);
         sb.append(':');
-        strb(sb, map.get(key));
+        strb(sb, map.get(key), sorted);
         while (it.hasNext()) {
             sb.append(',');
             key = it.next();
-            strb(sb, key);
+            strb(sb, key, sorted);
             sb.append(':');
-            strb(sb, map.get(key));
+            strb(sb, map.get(key), sorted);
         }
         sb.append('}');
         return sb;
@@ -1583,20 +7386,146 @@ public final class JSON {
     }
     
     protected static final StringBuilder strb(StringBuilder sb, Iterator it) {
+        return strb(sb, it, true);
+    }
+    
+    protected static final StringBuilder strb(
+        StringBuilder sb, Iterator it, boolean sorted
+        ) {
         if (!it.hasNext()) {
             sb.append(_array);
             return sb;
         }
         sb.append('[');
-        strb(sb, it.next());
+        strb(sb, it.next(), sorted);
         while (it.hasNext()) {
             sb.append(',');
-            strb(sb, it.next());
+            strb(sb, it.next(), sorted);
         }
         sb.append(']');
         return sb;
     }
     
+    protected static final long[] _powers = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 
+        100000000L, 1000000000L, 10000000000L, 100000000000L, 
+        1000000000000L, 10000000000000L, 100000000000000L, 
+        1000000000000000L, 10000000000000000L, 100000000000000000L, 
+        1000000000000000000L
+    };
+    
+    /**
+     * Return the number of decimals of the shortest decimal that rounds 
+     * to a positive double between 1e-3 and 1e7, when there are at most
+     * eight, or -1.
+     * 
+     * @p In that range <code>Double.toString</code> writes that decimal
+     * without an exponent, the same digits for all Java releases.
+     */
+    protected static final int decimals(double a) {
+        if (a >= 1e-3 && a < 1e7)
+            for (int k = 0; k < 9; k++) {
+                if (Math.rint(a * _powers[k]) / _powers[k] == a)
+                    return k;
+            }
+        return -1;
+    }
+    
+    /**
+     * Append the digits of a fraction of <code>k</code> decimals.
+     */
+    protected static final StringBuilder strb(
+        StringBuilder sb, long fraction, int k
+        ) {
+        for (int i = k - 1; i > 0 && fraction < _powers[i]; i--)
+            sb.append('0');
+        return sb.append(fraction);
+    }
+    
+    /**
+     * Append a double as <code>Double.toString</code> does, trimmed of a
+     * null fraction as <code>trimZero</code> does if <code>trim</code> is
+     * <code>true</code>.
+     */
+    protected static final StringBuilder strb(
+        StringBuilder sb, double d, boolean trim
+        ) {
+        double a = Math.abs(d);
+        int k = (a == 0.0) ? 0 : decimals(a);
+        if (k < 0)
+            return sb.append(
+                trim ? trimZero(Double.toString(d)) : Double.toString(d)
+                );
+        
+        long m = (long) Math.rint(a * _powers[k]);
+        if (d < 0.0 || (a == 0.0 && 1.0 / d < 0.0))
+            sb.append('-');
+        sb.append(m / _powers[k]);
+        if (k > 0)
+            strb(sb.append('.'), m % _powers[k], k);
+        else if (!trim)
+            sb.append(".0");
+        return sb;
+    }
+    
+    /**
+     * Append a number as <code>trimZero(value.toString())</code> does,
+     * without the intermediate strings for integers, doubles and decimals
+     * of less than 19 digits.
+     */
+    protected static final StringBuilder strb(StringBuilder sb, Number value) {
+        if (
+            value instanceof Integer || value instanceof Long || 
+            value instanceof Short || value instanceof Byte
+            )
+            return sb.append(value.longValue());
+        else if (value instanceof Double)
+            return strb(sb, value.doubleValue(), true);
+        else if (value instanceof BigDecimal) {
+            BigDecimal decimal = (BigDecimal) value;
+            int scale = decimal.scale(), precision = decimal.precision();
+            if (
+                scale >= 0 && scale < 19 && precision < 19 && 
+                precision - scale > -6
+                ) {
+                long m = decimal.unscaledValue().longValue();
+                if (m < 0) {
+                    sb.append('-');
+                    m = -m;
+                }
+                sb.append(m / _powers[scale]);
+                if (m % _powers[scale] > 0)
+                    strb(sb.append('.'), m % _powers[scale], scale);
+                return sb;
+            }
+        }
+        return sb.append(trimZero(value.toString()));
+    }
+    
+    /**
+     * Append a decimal of less than 19 digits and 0 to 18 decimals as
+     * <code>strb</code> appends the <code>BigDecimal</code> of the same
+     * unscaled value and scale, without that <code>BigDecimal</code> 
+     * unless it is less than 1e-6.
+     */
+    protected static final StringBuilder decimal(
+        StringBuilder sb, long unscaled, int scale
+        ) {
+        long m = Math.abs(unscaled);
+        int precision = 1;
+        while (precision < 19 && m >= _powers[precision])
+            precision++;
+        if (precision - scale > -6) {
+            if (unscaled < 0)
+                sb.append('-');
+            sb.append(m / _powers[scale]);
+            if (m % _powers[scale] > 0)
+                strb(sb.append('.'), m % _powers[scale], scale);
+            return sb;
+        }
+        return sb.append(trimZero(BigDecimal.valueOf(unscaled, scale).toString()));
+    }
+    
     protected static final String trimZero (String untrimmed) {
         int last = untrimmed.length();
         char c;
@@ -1638,6 +7567,81 @@ public final class JSON {
     	return map;
     }
     
+    /**
+     * Return the names of a Rhino object's own properties as strings, 
+     * sorted or in their enumeration order.
+     */
+    protected static final String[] _jsNames (
+        Scriptable object, boolean sorted
+        ) {
+        java.lang.Object[] ids = object.getIds();
+        String[] names = new String[ids.length];
+        for (int i=0; i < ids.length; i++) {
+            names[i] = ids[i].toString();
+        }
+        if (sorted)
+            Arrays.sort(names);
+        return names;
+    }
+    
+    /**
+     * Get the value of a Rhino object's property by name, or by index
+     * if that name is not found.
+     */
+    protected static final java.lang.Object _jsGet (
+        Scriptable object, String name
+        ) {
+        java.lang.Object v = ScriptableObject.getProperty(object, name);
+        if (v == Scriptable.NOT_FOUND)
+            return ScriptableObject.getProperty(
+                object, Integer.parseInt(name)
+                );
+        return v;
+    }
+    
+    /**
+     * Iterate through the elements of a Rhino array in place.
+     */
+    protected static final class _jsElements implements Iterator {
+        private Scriptable _array;
+        private int _length;
+        private int _index = 0;
+        public _jsElements (Scriptable array) {
+            _array = array;
+            _length = array.getIds().length;
+        }
+        public final boolean hasNext() {
+            return _index < _length;
+        }
+        public final java.lang.Object next() {
+            if (_index < _length)
+                return _array.get(_index++, _array);
+            throw new NoSuchElementException();
+        }
+        public final void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
+    protected static final StringBuilder strb(
+        StringBuilder sb, Scriptable object, String[] names, boolean sorted
+        ) {
+        if (names.length == 0)
+            sb.append(_object);
+        else {
+            sb.append('{');
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0)
+                    sb.append(',');
+                strb(sb, names[i]);
+                sb.append(':');
+                strb(sb, _jsGet(object, names[i]), sorted);
+            }
+            sb.append('}');
+        }
+        return sb;
+    }
+    
     /**
      * Serialize a JSON type in a <code>StringBuilder</code>
      * 
@@ -1648,53 +7652,62 @@ public final class JSON {
     public static final StringBuilder strb(
         StringBuilder sb, java.lang.Object value
         ) {
+        return strb(sb, value, true);
+    }
+    
+    /**
+     * Serialize a JSON type in a <code>StringBuilder</code>, with the 
+     * members of maps sorted by name or in their iteration order.
+     * 
+     * @param sb to fill
+     * @param value to serialize
+     * @param sorted <code>true</code> for the canonical order
+     * @return
+     */
+    public static final StringBuilder strb(
+        StringBuilder sb, java.lang.Object value, boolean sorted
+        ) {
         if (value == null) {
             sb.append(_null);
         } else if (value instanceof Boolean) {
             sb.append(((Boolean) value).booleanValue() ? _true : _false);
         } else if (value instanceof Number) { 
-            sb.append(trimZero(((Number) value).toString()));
+            strb(sb, (Number) value);
     	} else if (value instanceof String) {
             strb(sb, (String) value);
     	} else if (value instanceof Character) {
             strb(sb, ((Character) value).toString());
-        } else if (value instanceof Native) {
+        } else if (
+            sorted && value instanceof Frozen && ((Frozen) value).json() != null
+            ) {
+            sb.append(((Frozen) value).json());
+        } else if (value instanceof Persistent) {
+            ((Persistent) value).strb(sb, sorted);
+        } else if (value instanceof Numbers) {
+            ((Numbers) value).strb(sb);
+        } else if (value instanceof Native && (sorted || !(
+            value instanceof JSON.Object || value instanceof JSON.Array
+            ))) {
         	((Native) value).toJSON(sb);
     	} else if (value instanceof Iterator) { 
-            strb(sb, (Iterator) value);
+            strb(sb, (Iterator) value, sorted);
     	} else if (value instanceof Map) {
             Map object = (Map) value;
-            java.lang.Object[] names = object.keySet().toArray();
-            Arrays.sort(names);
-            strb(sb, object, Objects.iter(names));
+            if (sorted)
+                strb(sb, object, Objects.iter(names(object)), true);
+            else
+                strb(sb, object, object.keySet().iterator(), false);
         } else if (value instanceof Iterable) {
-            strb(sb, ((Iterable) value).iterator());
+            strb(sb, ((Iterable) value).iterator(), sorted);
         } else if (value instanceof java.lang.Object[]) {
-            strb(sb, Objects.iter((java.lang.Object[]) value));
+            strb(sb, Objects.iter((java.lang.Object[]) value), sorted);
         } else if (value instanceof NativeArray) {
-            NativeArray array = (NativeArray) value;
-            java.lang.Object[] ids = (array).getIds();
-            if (ids.length == 0)
-                sb.append(_array);
-            else {
-                java.lang.Object[] list = new java.lang.Object[ids.length]; 
-                for (int i=0; i < ids.length; i++) {
-                    list[i] = array.get(i, array);
-                }
-                strb(sb, Objects.iter(list));
-            }
+            strb(sb, new _jsElements((NativeArray) value), sorted);
         } else if (value instanceof NativeObject) {
             NativeObject object = (NativeObject) value;
-            java.lang.Object[] ids = object.getIds();
-            if (ids.length == 0)
-                sb.append(_object);
-            else {
-                String keys[] = new String[ids.length];
-                JSON.Object map = _jsMap (object, ids, keys);
-                strb(sb, map, Objects.iter((java.lang.Object[])keys));
-            }
+            strb(sb, object, _jsNames(object, sorted), sorted);
         } else if (value instanceof NativeJavaObject) {
-            strb(sb, ((NativeJavaObject) value).unwrap());
+            strb(sb, ((NativeJavaObject) value).unwrap(), sorted);
         } else {
             Class type = null;
             try {type = value.getClass();} catch (Throwable e) {;}
@@ -1705,9 +7718,14 @@ public final class JSON {
                 if (component.isPrimitive())
                     strb(sb, value, component);
                 else
-                    strb(sb, Objects.iter((java.lang.Object[]) value));
-            } else
-                strb(sb, value.toString());
+                    strb(sb, Objects.iter((java.lang.Object[]) value), sorted);
+            } else {
+                Codec codec = (Codec) _codecs.get(type);
+                if (codec == null)
+                    strb(sb, value.toString());
+                else
+                    codec.strb(sb, value, sorted);
+            }
         }
         return sb;
     }
@@ -1723,10 +7741,599 @@ public final class JSON {
         return strb(new StringBuilder(), value).toString();
     }
     
+    /**
+     * Encode an untyped value as a JSON string with the members of maps
+     * in their iteration order, without sorting them by name.
+     * 
+     * @param value to encode
+     * @param sorted <code>false</code> to skip sorting
+     * @return a JSON <code>String</code>
+     */
+    public static final String encode(java.lang.Object value, boolean sorted) {
+        return strb(new StringBuilder(), value, sorted).toString();
+    }
+    
+    /**
+     * Return the names of a map sorted, cached by <code>JSON.Object</code>
+     * until they change. The array returned must not be modified.
+     * 
+     * @param map to sort
+     * @return the names of the map sorted
+     */
+    protected static final java.lang.Object[] names(Map map) {
+        if (map instanceof JSON.Object)
+            return ((JSON.Object) map).names();
+        
+        java.lang.Object[] names = map.keySet().toArray();
+        Arrays.sort(names);
+        return names;
+    }
+
+    /**
+     * A serializer of the JSON types to UTF-8 bytes, buffered in a byte
+     * array that is written to an <code>OutputStream</code>, a blocking
+     * <code>WritableByteChannel</code> or put in a <code>ByteBuffer</code>
+     * each time it is full.
+     *
+     * @h3 Synopsis
+     *
+     * @pre JSON.Writer writer = new JSON.Writer(response.getOutputStream());
+     *writer.write(value);
+     *writer.flush();
+     *
+     * @p The bytes written are the ones of <code>JSON.encode</code> encoded
+     * in UTF-8, without the intermediate <code>String</code>. The memory
+     * used is bounded by the size of the buffer, except for instances of
+     * <code>JSON.Native</code> other than <code>JSON.Object</code> and
+     * <code>JSON.Array</code>, that are serialized in a
+     * <code>StringBuilder</code> first.
+     *
+     * @p A writer keeps its buffer between values, use it to write many
+     * values to the same output or <code>open</code> it on another one.
+     */
+    public static class Writer {
+        protected byte[] buffer;
+        protected int length = 0;
+        protected OutputStream stream = null;
+        protected WritableByteChannel channel = null;
+        protected ByteBuffer target = null;
+        /**
+         * The number of bytes written to the output since it was opened.
+         */
+        public long written = 0;
+        /**
+         * Write the members of maps sorted by name, the canonical order, 
+         * or in their iteration order when <code>false</code>.
+         */
+        public boolean sorted = true;
+        protected StringBuilder scratch = new StringBuilder();
+        protected int width = 0;
+        protected int depth = 0;
+        protected byte[] indents = null;
+        /**
+         * Buffer bytes to be written to an <code>OutputStream</code>.
+         *
+         * @param stream to write to
+         */
+        public Writer(OutputStream stream) {
+            this(SIO.netBufferSize);
+            this.stream = stream;
+        }
+        /**
+         * Buffer bytes to be written to a blocking
+         * <code>WritableByteChannel</code>.
+         *
+         * @param channel to write to
+         */
+        public Writer(WritableByteChannel channel) {
+            this(SIO.netBufferSize);
+            this.channel = channel;
+        }
+        /**
+         * Buffer bytes to be put in a <code>ByteBuffer</code>, that throws
+         * a <code>BufferOverflowException</code> when it is full.
+         *
+         * @param target to put bytes in
+         */
+        public Writer(ByteBuffer target) {
+            this(SIO.netBufferSize);
+            this.target = target;
+        }
+        /**
+         * Allocate a buffer of <code>size</code> bytes, at least 32, to be
+         * opened on an output later.
+         *
+         * @param size of the buffer
+         */
+        public Writer(int size) {
+            buffer = new byte[Math.max(size, 32)];
+        }
+        /**
+         * Write the buffered bytes to the current output and open another,
+         * or throw the <code>IOException</code> of the current output and
+         * keep both the buffered bytes and the output.
+         *
+         * @param stream to write to
+         * @return this writer
+         * @throws IOException
+         */
+        public final Writer open(OutputStream stream) throws IOException {
+            close(); this.stream = stream; return this;
+        }
+        public final Writer open(WritableByteChannel channel) 
+        throws IOException {
+            close(); this.channel = channel; return this;
+        }
+        public final Writer open(ByteBuffer target) throws IOException {
+            close(); this.target = target; return this;
+        }
+        /**
+         * Write the buffered bytes to the current output, if any, and
+         * detach this writer from it, without closing it. If the output
+         * fails, its <code>IOException</code> is thrown and this writer
+         * is left unchanged. Bytes buffered while no output was opened 
+         * are kept for the next one.
+         *
+         * @throws IOException
+         */
+        protected final void close() throws IOException {
+            if (stream == null && channel == null && target == null)
+                return;
+            
+            drain();
+            stream = null;
+            channel = null;
+            target = null;
+            length = 0;
+            written = 0;
+            depth = 0;
+        }
+        /**
+         * Write the buffered bytes to the output and flush it if it is an
+         * <code>OutputStream</code>.
+         *
+         * @throws IOException
+         */
+        public final void flush() throws IOException {
+            drain();
+            if (stream != null)
+                stream.flush();
+        }
+        protected void drain() throws IOException {
+            if (length == 0)
+                return;
+
+            if (stream != null)
+                stream.write(buffer, 0, length);
+            else if (channel != null) {
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, length);
+                while (bytes.hasRemaining())
+                    channel.write(bytes);
+            } else if (target != null)
+                target.put(buffer, 0, length);
+            else
+                throw new IOException("no output opened");
+
+            written += length;
+            length = 0;
+        }
+        protected final void ascii(char c) throws IOException {
+            if (length == buffer.length)
+                drain();
+            buffer[length++] = (byte) c;
+        }
+        protected final void ascii(CharSequence s) throws IOException {
+            int n = s.length();
+            if (length + n > buffer.length) {
+                drain();
+                if (n > buffer.length) {
+                    for (int i = 0; i < n; i++)
+                        ascii(s.charAt(i));
+                    return;
+                }
+            }
+            for (int i = 0; i < n; i++)
+                buffer[length++] = (byte) s.charAt(i);
+        }
+        protected final void integer(long l) throws IOException {
+            if (length + 20 >= buffer.length)
+                drain();
+            if (l == Long.MIN_VALUE) {
+                ascii(Long.toString(l));
+                return;
+            }
+            if (l < 0) {
+                buffer[length++] = '-';
+                l = -l;
+            }
+            int i = length + 19;
+            do {
+                buffer[i--] = (byte) ('0' + (l % 10));
+                l /= 10;
+            } while (l > 0);
+            int n = length + 19 - i;
+            System.arraycopy(buffer, i + 1, buffer, length, n);
+            length += n;
+        }
+        /**
+         * Write a quoted string escaped like <code>JSON.strb</code> does,
+         * encoded in UTF-8 with unpaired surrogates replaced by a
+         * question mark, as <code>String.getBytes</code> does.
+         */
+        protected final void string(String s) throws IOException {
+            ascii('"');
+            int n = s.length(), room;
+            char c, d;
+            byte[] out;
+            for (int i = 0; i < n; ) {
+                room = (buffer.length - length) / 6;
+                if (room < 1) {
+                    drain();
+                    room = buffer.length / 6;
+                }
+                out = buffer;
+                for (int m = Math.min(n, i + room); i < m; i++) {
+                    c = s.charAt(i);
+                    if (c < 0x80) {
+                        if (c >= 0x20 && c != '"' && c != '\\' && c != '/' && c != 0x7f) {
+                            out[length++] = (byte) c;
+                            continue;
+                        }
+                        switch (c) {
+                        case '"': out[length++] = '\\'; out[length++] = '"'; break;
+                        case '\\': out[length++] = '\\'; out[length++] = '\\'; break;
+                        case '/': out[length++] = '\\'; out[length++] = '/'; break;
+                        case '\b': out[length++] = '\\'; out[length++] = 'b'; break;
+                        case '\f': out[length++] = '\\'; out[length++] = 'f'; break;
+                        case '\n': out[length++] = '\\'; out[length++] = 'n'; break;
+                        case '\r': out[length++] = '\\'; out[length++] = 'r'; break;
+                        case '\t': out[length++] = '\\'; out[length++] = 't'; break;
+                        default: unicode(c);
+                        }
+                    } else if (c < 0x800) {
+                        if (c < 0xa0)
+                            unicode(c);
+                        else {
+                            out[length++] = (byte) (0xc0 | (c >> 6));
+                            out[length++] = (byte) (0x80 | (c & 0x3f));
+                        }
+                    } else if (c < 0xd800 || c > 0xdfff) {
+                        out[length++] = (byte) (0xe0 | (c >> 12));
+                        out[length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                        out[length++] = (byte) (0x80 | (c & 0x3f));
+                    } else if (
+                        c < 0xdc00 && i + 1 < n &&
+                        (d = s.charAt(i + 1)) >= 0xdc00 && d <= 0xdfff
+                        ) {
+                        int code = 0x10000 + ((c - 0xd800) << 10) + (d - 0xdc00);
+                        out[length++] = (byte) (0xf0 | (code >> 18));
+                        out[length++] = (byte) (0x80 | ((code >> 12) & 0x3f));
+                        out[length++] = (byte) (0x80 | ((code >> 6) & 0x3f));
+                        out[length++] = (byte) (0x80 | (code & 0x3f));
+                        i++;
+                    } else
+                        out[length++] = '?';
+                }
+            }
+            ascii('"');
+        }
+        /**
+         * Write a double as <code>JSON.strb</code> appends it.
+         */
+        protected final void number(double d, boolean trim) 
+        throws IOException {
+            double a = Math.abs(d);
+            int k = (a == 0.0) ? 0 : decimals(a);
+            if (k < 0) {
+                ascii(trim ? trimZero(Double.toString(d)) : Double.toString(d));
+                return;
+            }
+            long m = (long) Math.rint(a * _powers[k]);
+            if (d < 0.0 || (a == 0.0 && 1.0 / d < 0.0)) 
+                ascii('-');
+            integer(m / _powers[k]);
+            if (k > 0) {
+                if (length + 10 > buffer.length)
+                    drain();
+                buffer[length++] = '.';
+                long fraction = m % _powers[k];
+                for (int i = length + k - 1; i >= length; i--) {
+                    buffer[i] = (byte) ('0' + (fraction % 10));
+                    fraction /= 10;
+                }
+                length += k;
+            } else if (!trim)
+                ascii(".0");
+        }
+        /**
+         * Write the encoded name of a member, preceded by an opening brace
+         * or a comma, replacing the brace of the first member's when
+         * <code>n</code> is not zero.
+         */
+        protected final void prefix(byte[] bytes, int n) throws IOException {
+            if (length + bytes.length > buffer.length) {
+                drain();
+                if (bytes.length > buffer.length) {
+                    ascii(n == 0 ? '{' : ',');
+                    for (int i = 1; i < bytes.length; i++)
+                        ascii((char) bytes[i]);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, length, bytes.length);
+            buffer[length] = (byte) (n == 0 ? '{' : ',');
+            length += bytes.length;
+        }
+        protected final void bytes(byte[] bytes) throws IOException {
+            int n;
+            for (int off = 0; off < bytes.length; off += n) {
+                if (length == buffer.length)
+                    drain();
+                n = Math.min(bytes.length - off, buffer.length - length);
+                System.arraycopy(bytes, off, buffer, length, n);
+                length += n;
+            }
+        }
+        protected final void unicode(char c) {
+            buffer[length++] = '\\';
+            buffer[length++] = 'u';
+            buffer[length++] = (byte) _hex[(c >> 12) & 0xf];
+            buffer[length++] = (byte) _hex[(c >> 8) & 0xf];
+            buffer[length++] = (byte) _hex[(c >> 4) & 0xf];
+            buffer[length++] = (byte) _hex[c & 0xf];
+        }
+        protected final void object(Map map, java.lang.Object[] names)
+        throws IOException {
+            if (names.length == 0) {
+                ascii(_object);
+                return;
+            }
+            begin('{');
+            for (int i = 0; i < names.length; i++) {
+                separate(i);
+                write(names[i]);
+                colon();
+                write(map.get(names[i]));
+            }
+            end('}');
+        }
+        protected final void jsObject(Scriptable object, String[] names)
+        throws IOException {
+            if (names.length == 0) {
+                ascii(_object);
+                return;
+            }
+            begin('{');
+            for (int i = 0; i < names.length; i++) {
+                separate(i);
+                string(names[i]);
+                colon();
+                write(_jsGet(object, names[i]));
+            }
+            end('}');
+        }
+        protected final void array(Iterator it) throws IOException {
+            if (!it.hasNext()) {
+                ascii(_array);
+                return;
+            }
+            begin('[');
+            for (int i = 0; it.hasNext(); i++) {
+                separate(i);
+                write(it.next());
+            }
+            end(']');
+        }
+        /**
+         * Write the members and elements of containers on indented lines,
+         * as <code>JSON.pprint</code> does with a <code>width</code> of two
+         * spaces, or on one line if <code>width</code> is zero.
+         * 
+         * @param width of an indentation level, in spaces
+         * @return this writer
+         */
+        public final Writer pretty(int width) {
+            this.width = width;
+            indents = null;
+            return this;
+        }
+        protected final void begin(char c) throws IOException {
+            ascii(c);
+            depth++;
+        }
+        protected final void end(char c) throws IOException {
+            if (width > 0)
+                newline();
+            depth--;
+            ascii(c);
+        }
+        protected final void separate(int i) throws IOException {
+            if (i > 0) 
+                ascii(',');
+            if (width > 0) {
+                if (i > 0)
+                    ascii(' ');
+                newline();
+            }
+        }
+        protected final void colon() throws IOException {
+            ascii(':');
+            if (width > 0)
+                ascii(' ');
+        }
+        /**
+         * Write a CRLF and the indentation of the current depth, copied 
+         * from a table of spaces grown by doubling.
+         */
+        protected final void newline() throws IOException {
+            int n = 2 + depth * width;
+            if (indents == null || indents.length < n) {
+                indents = new byte[Math.max(2 * n, 2 + 8 * width)];
+                Arrays.fill(indents, (byte) ' ');
+                indents[0] = '\r';
+                indents[1] = '\n';
+            }
+            if (length + n > buffer.length) {
+                drain();
+                if (n > buffer.length) {
+                    for (int i = 0; i < n; i++)
+                        ascii((char) indents[i]);
+                    return;
+                }
+            }
+            System.arraycopy(indents, 0, buffer, length, n);
+            length += n;
+        }
+        protected final void array(java.lang.Object value, Class component)
+        throws IOException {
+            if (component == Byte.TYPE || component == Short.TYPE ||
+                component == Integer.TYPE || component == Long.TYPE) {
+                int n = java.lang.reflect.Array.getLength(value);
+                if (n == 0) {
+                    ascii(_array);
+                    return;
+                }
+                ascii('[');
+                for (int i = 0; i < n; i++) {
+                    if (i > 0)
+                        ascii(',');
+                    if (component == Integer.TYPE)
+                        integer(((int[]) value)[i]);
+                    else if (component == Long.TYPE)
+                        integer(((long[]) value)[i]);
+                    else if (component == Byte.TYPE)
+                        integer(((byte[]) value)[i]);
+                    else
+                        integer(((short[]) value)[i]);
+                }
+                ascii(']');
+            } else if (component == Double.TYPE) {
+                double[] doubles = (double[]) value;
+                if (doubles.length == 0) {
+                    ascii(_array);
+                    return;
+                }
+                ascii('[');
+                for (int i = 0; i < doubles.length; i++) {
+                    if (i > 0)
+                        ascii(',');
+                    number(doubles[i], false);
+                }
+                ascii(']');
+            } else if (component == Boolean.TYPE) {
+                boolean[] bools = (boolean[]) value;
+                if (bools.length == 0) {
+                    ascii(_array);
+                    return;
+                }
+                ascii('[');
+                for (int i = 0; i < bools.length; i++) {
+                    if (i > 0)
+                        ascii(',');
+                    ascii(bools[i] ? _true : _false);
+                }
+                ascii(']');
+            } else if (component == Character.TYPE)
+                string(value.toString());
+        }
+        /**
+         * Serialize a JSON type like <code>JSON.strb</code> does.
+         *
+         * @param value to serialize
+         * @return this writer
+         * @throws IOException
+         */
+        public final Writer write(java.lang.Object value) throws IOException {
+            if (value == null) {
+                ascii(_null);
+            } else if (value instanceof Boolean) {
+                ascii(((Boolean) value).booleanValue() ? _true : _false);
+            } else if (
+                value instanceof Integer || value instanceof Long ||
+                value instanceof Short || value instanceof Byte
+                ) {
+                integer(((Number) value).longValue());
+            } else if (value instanceof Double) {
+                number(((Double) value).doubleValue(), true);
+            } else if (value instanceof Number) {
+                scratch.setLength(0);
+                ascii(strb(scratch, (Number) value));
+            } else if (value instanceof String) {
+                string((String) value);
+            } else if (value instanceof Character) {
+                string(((Character) value).toString());
+            } else if (sorted && width == 0 && _frozen(value) != null) {
+                bytes(_frozen(value));
+            } else if (value instanceof Persistent) {
+                ((Persistent) value).write(this);
+            } else if (value instanceof Numbers) {
+                ((Numbers) value).write(this);
+            } else if (value instanceof Native && !(
+                value instanceof JSON.Object || value instanceof JSON.Array
+                )) {
+                scratch.setLength(0);
+                if (width > 0) {
+                    StringBuilder indent = new StringBuilder(_crlf);
+                    for (int i = depth * width; i > 0; i--)
+                        indent.append(' ');
+                    ascii(((Native) value).toJSON(scratch, indent.toString()));
+                } else
+                    ascii(((Native) value).toJSON(scratch));
+            } else if (value instanceof Iterator) {
+                array((Iterator) value);
+            } else if (value instanceof Map) {
+                Map object = (Map) value;
+                object(object, sorted ? 
+                    names(object) : object.keySet().toArray()
+                    );
+            } else if (value instanceof Iterable) {
+                array(((Iterable) value).iterator());
+            } else if (value instanceof java.lang.Object[]) {
+                array(Objects.iter((java.lang.Object[]) value));
+            } else if (value instanceof NativeArray) {
+                array(new _jsElements((NativeArray) value));
+            } else if (value instanceof NativeObject) {
+                NativeObject object = (NativeObject) value;
+                jsObject(object, _jsNames(object, sorted));
+            } else if (value instanceof NativeJavaObject) {
+                write(((NativeJavaObject) value).unwrap());
+            } else {
+                Class type = null;
+                try {type = value.getClass();} catch (Throwable e) {;}
+                if (type == null)
+                    string(String.valueOf(value));
+                else if (type.isArray()) {
+                    Class component = type.getComponentType();
+                    if (component.isPrimitive())
+                        array(value, component);
+                    else
+                        array(Objects.iter((java.lang.Object[]) value));
+                } else {
+                    Codec codec = (Codec) _codecs.get(type);
+                    if (codec == null)
+                        string(value.toString());
+                    else if (width > 0)
+                        write(codec.reflect(value));
+                    else
+                        codec.write(this, value);
+                }
+            }
+            return this;
+        }
+    }
+    
     protected static final StringBuilder xjson(StringBuilder sb, String s) {
         sb.append('"');
-        CharacterIterator it = new StringCharacterIterator(s);
-        for (char c = it.first(); c != _done; c = it.next()) {
+        int n = s.length(), run = 0;
+        char c;
+        for (int i = 0; i < n; i++) {
+            c = s.charAt(i);
+            if (c > 31 && c < 127 && c != '"' && c != '\\' && c != '/') 
+                continue;
+            
+            if (i > run)
+                sb.append(s, run, i);
+            run = i + 1;
             switch(c) {
             case '"':  sb.append(_quote); break;
             case '\\': sb.append(_back); break;
@@ -1737,12 +8344,11 @@ public final class JSON {
             case '\r': sb.append(_ctrl_r); break;
             case '\t': sb.append(_ctrl_t); break;
             default: 
-                if (c > 126 || c < 32)
-                    unicode(sb, c);
-                else
-                    sb.append(c);
+                unicode(sb, c);
             }
         }
+        if (n > run)
+            sb.append(s, run, n);
         sb.append('"');
         return sb;
     }
@@ -1796,7 +8402,7 @@ public final class JSON {
         else if (value instanceof Boolean)
             sb.append(((Boolean) value).booleanValue() ? _true : _false);
         else if (value instanceof Number) 
-            sb.append(trimZero(((Number) value).toString()));
+            strb(sb, (Number) value);
         else if (value instanceof String) 
             xjson(sb, (String) value);
         else if (value instanceof Character) 
@@ -1805,9 +8411,7 @@ public final class JSON {
             xjson(sb, (Iterator) value);
         else if (value instanceof Map) {
             Map object = (Map) value;
-            java.lang.Object[] names = object.keySet().toArray();
-            Arrays.sort(names);
-            xjson(sb, object, Objects.iter(names));
+            xjson(sb, object, Objects.iter(names(object)));
         } else if (value instanceof Iterable) {
             xjson(sb, ((Iterable) value).iterator());
         } else if (value instanceof Object[]) {
@@ -1847,8 +8451,13 @@ public final class JSON {
                     strb(sb, value, component);
                 else
                     xjson(sb, Objects.iter((java.lang.Object[]) value));
-            } else
-                xjson(sb, value.toString());
+            } else {
+                Codec codec = (Codec) _codecs.get(type);
+                if (codec == null)
+                    xjson(sb, value.toString());
+                else
+                    xjson(sb, codec.reflect(value));
+            }
         }
         return sb;
     }
@@ -1924,7 +8533,7 @@ public final class JSON {
         } else if (value instanceof Boolean) {
             sb.append(((Boolean) value).booleanValue() ? _true : _false);
         } else if (value instanceof Number) { 
-            sb.append(trimZero(((Number) value).toString()));
+            strb(sb, (Number) value);
         } else if (value instanceof String) {
             strb(sb, (String) value);
         } else if (value instanceof Character) { 
@@ -1935,9 +8544,7 @@ public final class JSON {
             outline(sb, (Iterator) value, indent);
         } else if (value instanceof Map) {
             Map object = (Map) value;
-            java.lang.Object[] names = object.keySet().toArray();
-            Arrays.sort(names);
-            outline(sb, object, Objects.iter(names), indent);
+            outline(sb, object, Objects.iter(names(object)), indent);
         } else if (value instanceof Iterable) {
             outline(sb, ((Iterable) value).iterator(), indent);
         } else if (value instanceof Object[]) {
@@ -1964,266 +8571,1452 @@ public final class JSON {
                 JSON.Object map = _jsMap (object, ids, keys);
                 outline(sb, map, Objects.iter((java.lang.Object[])keys), indent);
             }
-        } else if (value instanceof NativeJavaObject) {
-            outline(sb, ((NativeJavaObject) value).unwrap(), indent);
-        } else {
-            Class type = null;
-            try {type = value.getClass();} catch (Throwable e) {;}
-            if (type == null)
-                sb.append(value);
-            else if (type.isArray()) {
-                Class component = type.getComponentType();
-                if (component.isPrimitive())
-                    strb(sb, value, component);
-                else
-                    outline(sb, Objects.iter((java.lang.Object[]) value), indent);
-            } else
-                outline(sb, value.toString(), indent);
+        } else if (value instanceof NativeJavaObject) {
+            outline(sb, ((NativeJavaObject) value).unwrap(), indent);
+        } else {
+            Class type = null;
+            try {type = value.getClass();} catch (Throwable e) {;}
+            if (type == null)
+                sb.append(value);
+            else if (type.isArray()) {
+                Class component = type.getComponentType();
+                if (component.isPrimitive())
+                    strb(sb, value, component);
+                else
+                    outline(sb, Objects.iter((java.lang.Object[]) value), indent);
+            } else {
+                Codec codec = (Codec) _codecs.get(type);
+                if (codec == null)
+                    outline(sb, value.toString(), indent);
+                else
+                    outline(sb, codec.reflect(value), indent);
+            }
+        }
+        return sb;
+    }
+    
+    /**
+     * Encode an untyped value as a pretty-printed JSON string with
+     * CRLF line delimiters and a two space wide indentation, return 
+     * a <code>String</code> that can safely be encoded in UTF-8.
+     * 
+     * @param value to represent
+     * @return an X-JSON <code>String</code>
+     */
+    public static final String pprint(java.lang.Object value) {
+        return outline(new StringBuilder(), value, _crlf).toString();
+    }
+    
+    /**
+     * Encode an untyped value as a pretty-printed JSON string with
+     * CRLF line delimiters and a two space wide indentation, written
+     * by a <code>JSON.Writer</code> to an <code>OutputStream</code> in
+     * chunks of 16KB.
+     * 
+     * @param value to represent
+     * @param os to write to
+     */
+    public static final void pprint(
+        java.lang.Object value, OutputStream os
+        ) throws IOException {
+        new Writer(os).pretty(2).write(value).flush();
+    }
+
+    /**
+     * A resumable serializer of the JSON types that yields UTF-8 encoded 
+     * chunks close to a target size, whatever the nesting of the value.
+     * 
+     * @p Containers are serialized with an explicit stack of the members
+     * and elements left to write, only when the next chunk is asked for.
+     * Scalars larger than a chunk are split across chunks. The bytes 
+     * yielded are the ones of <code>JSON.Writer</code>.
+     */
+    public static class Chunks extends Writer 
+    implements Iterator<byte[]>, Iterable<byte[]> {
+        protected static final class Frame {
+            protected Map map;
+            protected Scriptable object;
+            protected java.lang.Object[] names;
+            protected Iterator items;
+            protected int index = 0;
+        }
+        protected ArrayList stack = new ArrayList();
+        protected LinkedList chunks = new LinkedList();
+        /**
+         * Prepare to serialize a value in chunks of at most 
+         * <code>size</code> bytes.
+         *
+         * @param value to serialize
+         * @param size of the chunks
+         */
+        public Chunks(java.lang.Object value, int size) {
+            super(size);
+            Frame root = new Frame();
+            root.items = Objects.iter(new java.lang.Object[]{value});
+            stack.add(root);
+        }
+        protected void drain() {
+            if (length > 0) {
+                byte[] chunk = new byte[length];
+                System.arraycopy(buffer, 0, chunk, 0, length);
+                chunks.add(chunk);
+                written += length;
+                length = 0;
+            }
+        }
+        public final boolean hasNext() {
+            try {
+                while (chunks.isEmpty() && !stack.isEmpty())
+                    step();
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage());
+            }
+            if (chunks.isEmpty())
+                drain();
+            return !chunks.isEmpty();
+        }
+        public final byte[] next() {
+            if (hasNext())
+                return (byte[]) chunks.removeFirst();
+            else
+                throw new NoSuchElementException();
+        }
+        public final void remove() {
+            throw new UnsupportedOperationException();
+        }
+        public final Iterator<byte[]> iterator() {
+            return this;
+        }
+        /**
+         * Write the next member or element of the container on top of the
+         * stack, or close it.
+         */
+        protected final void step() throws IOException {
+            Frame top = (Frame) stack.get(stack.size() - 1);
+            if (top.names != null) {
+                if (top.index == top.names.length) {
+                    stack.remove(stack.size() - 1);
+                    end('}');
+                } else {
+                    java.lang.Object name = top.names[top.index];
+                    separate(top.index++);
+                    write(name);
+                    colon();
+                    if (top.map != null)
+                        push(top.map.get(name));
+                    else
+                        push(_jsGet(top.object, (String) name));
+                }
+            } else if (!top.items.hasNext()) {
+                stack.remove(stack.size() - 1);
+                if (stack.size() > 0)
+                    end(']');
+            } else if (stack.size() == 1) {
+                push(top.items.next());
+            } else {
+                separate(top.index++);
+                push(top.items.next());
+            }
+        }
+        protected final void push(java.lang.Object value) throws IOException {
+            if (value instanceof Native && !(
+                value instanceof JSON.Object || value instanceof JSON.Array
+                )) {
+                write(value);
+            } else if (value instanceof Iterator) {
+                elements((Iterator) value);
+            } else if (value instanceof Map) {
+                Map object = (Map) value;
+                members(object, sorted ? 
+                    names(object) : object.keySet().toArray()
+                    );
+            } else if (value instanceof Iterable) {
+                elements(((Iterable) value).iterator());
+            } else if (value instanceof java.lang.Object[]) {
+                elements(Objects.iter((java.lang.Object[]) value));
+            } else if (value instanceof NativeArray) {
+                elements(new _jsElements((NativeArray) value));
+            } else if (value instanceof NativeObject) {
+                NativeObject object = (NativeObject) value;
+                jsMembers(object, _jsNames(object, sorted));
+            } else if (value instanceof NativeJavaObject) {
+                push(((NativeJavaObject) value).unwrap());
+            } else
+                write(value);
+        }
+        protected final void members(Map map, java.lang.Object[] names) 
+        throws IOException {
+            if (names.length == 0)
+                ascii(_object);
+            else {
+                begin('{');
+                Frame frame = new Frame();
+                frame.map = map;
+                frame.names = names;
+                stack.add(frame);
+            }
+        }
+        protected final void jsMembers(Scriptable object, String[] names) 
+        throws IOException {
+            if (names.length == 0)
+                ascii(_object);
+            else {
+                begin('{');
+                Frame frame = new Frame();
+                frame.object = object;
+                frame.names = names;
+                stack.add(frame);
+            }
+        }
+        protected final void elements(Iterator items) throws IOException {
+            if (!items.hasNext())
+                ascii(_array);
+            else {
+                begin('[');
+                Frame frame = new Frame();
+                frame.items = items;
+                stack.add(frame);
+            }
+        }
+    }
+    
+    /**
+     * A resumable serializer of the JSON types to a non-blocking channel,
+     * writing as much as the channel accepts each time it is ready.
+     * 
+     * @p Only the chunk being sent is held in memory, the rest of the
+     * value is serialized when the channel accepted it all. For instance,
+     * on each write-ready event of a selector:
+     * 
+     * <pre>if (sender.send(channel)) key.interestOps(0);</pre>
+     */
+    public static class Sender extends Chunks {
+        protected ByteBuffer pending = null;
+        /**
+         * Prepare to send a value in chunks of about 
+         * <code>SIO.netBufferSize</code> bytes.
+         *
+         * @param value to send
+         */
+        public Sender(java.lang.Object value) {
+            super(value, SIO.netBufferSize);
+        }
+        /**
+         * Prepare to send a value in chunks of at most <code>size</code> 
+         * bytes.
+         *
+         * @param value to send
+         * @param size of the chunks
+         */
+        public Sender(java.lang.Object value, int size) {
+            super(value, size);
+        }
+        /**
+         * Write to a channel until it accepts no more bytes or the value
+         * has been sent.
+         * 
+         * @param channel to write to
+         * @return <code>true</code> if the whole value has been sent
+         * @throws IOException
+         */
+        public final boolean send(WritableByteChannel channel) 
+        throws IOException {
+            while (true) {
+                if (pending != null) {
+                    channel.write(pending);
+                    if (pending.hasRemaining())
+                        return false;
+                    pending = null;
+                }
+                if (!hasNext())
+                    return true;
+                pending = ByteBuffer.wrap(next());
+            }
+        }
+        /**
+         * @return <code>true</code> if the whole value has been sent
+         */
+        public final boolean sent() {
+            return pending == null && !hasNext();
+        }
+    }
+
+    /**
+     * A binary codec of the JSON types compatible with CBOR (RFC 8949),
+     * with length prefixed strings, variable length integers, raw IEEE
+     * doubles and no escaping.
+     *
+     * @h3 Synopsis
+     *
+     * @pre JSON.Writer writer = new JSON.Writer(socket.getOutputStream());
+     *JSON.CBOR.write(writer, value);
+     *writer.flush();
+     *...
+     *java.lang.Object value = new JSON.CBOR().read(buffer);
+     *
+     * @p Integers are encoded as CBOR integers or big numbers,
+     * <code>BigDecimal</code> as decimal fractions, other numbers as
+     * doubles, strings as text, maps and collections as definite length
+     * maps and arrays, iterators as indefinite length arrays. Values are
+     * decoded to the types of <code>JSON.Parser</code>, ignoring tags
+     * other than big numbers and decimal fractions, and with the same
+     * limits on the number of containers and iterations.
+     */
+    public static class CBOR {
+        protected static final String UNEXPECTED_TYPE = "unexpected CBOR type";
+        protected static final String BREAK = "break";
+        protected static final java.lang.Object STOP = new java.lang.Object();
+        protected static final BigInteger _unsigned = BigInteger.ONE.shiftLeft(64);
+        protected int start;
+        protected byte[] scratch = null;
+        protected char[] chars = null;
+        /**
+         * The maximum number of containers left to instanciate by this
+         * decoder.
+         */
+        public int containers = 65355;
+        /**
+         * The maximum number of iterations left to for this decoder.
+         */
+        public int iterations = 65355;
+        protected int maxContainers = 65355;
+        protected int maxIterations = 65355;
+        /**
+         * Instanciate a CBOR decoder with limits set to 65355 on the number
+         * of containers and iterations.
+         */
+        public CBOR() {}
+        /**
+         * Instanciate a CBOR decoder with the given limits on the number of
+         * both containers and iterations.
+         *
+         * @param containers a limit on the number of objects and arrays
+         * @param iterations a limit on the total count of values
+         */
+        public CBOR(int containers, int iterations) {
+            this.containers = (containers > 0 ? containers: 1);
+            this.iterations = (iterations > 0 ? iterations: 1);
+            this.maxContainers = this.containers;
+            this.maxIterations = this.iterations;
+        }
+        /**
+         * Restore the limits on containers and iterations set when this
+         * decoder was instanciated.
+         */
+        public void reset() {
+            containers = maxContainers;
+            iterations = maxIterations;
+        }
+        /**
+         * Encode a value in a new array of bytes.
+         *
+         * @param value to encode
+         * @return the CBOR bytes
+         */
+        public static final byte[] encode(java.lang.Object value) {
+            java.io.ByteArrayOutputStream os = new java.io.ByteArrayOutputStream();
+            Writer writer = new Writer(os);
+            try {
+                write(writer, value);
+                writer.flush();
+            } catch (IOException e) {
+                throw new RuntimeException(e.getMessage());
+            }
+            return os.toByteArray();
+        }
+        /**
+         * Encode a value in the buffer of a <code>JSON.Writer</code>,
+         * written to its output each time it is full.
+         *
+         * @param out the writer to buffer bytes in
+         * @param value to encode
+         * @throws IOException
+         */
+        public static final void write(Writer out, java.lang.Object value)
+        throws IOException {
+            if (value == null) {
+                out.ascii((char) 0xf6);
+            } else if (value instanceof Boolean) {
+                out.ascii((char) (((Boolean) value).booleanValue() ? 0xf5 : 0xf4));
+            } else if (
+                value instanceof Integer || value instanceof Long ||
+                value instanceof Short || value instanceof Byte
+                ) {
+                integer(out, ((Number) value).longValue());
+            } else if (value instanceof BigInteger) {
+                integer(out, (BigInteger) value);
+            } else if (value instanceof BigDecimal) {
+                BigDecimal decimal = (BigDecimal) value;
+                head(out, 6, 4);
+                head(out, 4, 2);
+                integer(out, -(long) decimal.scale());
+                integer(out, decimal.unscaledValue());
+            } else if (value instanceof Number) {
+                double d = ((Number) value).doubleValue();
+                if (out.length + 9 > out.buffer.length)
+                    out.drain();
+                out.buffer[out.length++] = (byte) 0xfb;
+                raw(out, Double.doubleToLongBits(d), 8);
+            } else if (value instanceof String) {
+                text(out, (String) value);
+            } else if (value instanceof Character) {
+                text(out, ((Character) value).toString());
+            } else if (value instanceof Map) {
+                Map map = (Map) value;
+                Iterator it = map.keySet().iterator();
+                java.lang.Object key;
+                head(out, 5, map.size());
+                while (it.hasNext()) {
+                    key = it.next();
+                    text(out, String.valueOf(key));
+                    write(out, map.get(key));
+                }
+            } else if (value instanceof Collection) {
+                Collection collection = (Collection) value;
+                head(out, 4, collection.size());
+                Iterator it = collection.iterator();
+                while (it.hasNext())
+                    write(out, it.next());
+            } else if (value instanceof Iterator) {
+                indefinite(out, (Iterator) value);
+            } else if (value instanceof Iterable) {
+                indefinite(out, ((Iterable) value).iterator());
+            } else if (value instanceof java.lang.Object[]) {
+                java.lang.Object[] array = (java.lang.Object[]) value;
+                head(out, 4, array.length);
+                for (int i = 0; i < array.length; i++)
+                    write(out, array[i]);
+            } else if (value instanceof NativeArray) {
+                indefinite(out, new _jsElements((NativeArray) value));
+            } else if (value instanceof NativeObject) {
+                NativeObject object = (NativeObject) value;
+                String[] names = _jsNames(object, false);
+                head(out, 5, names.length);
+                for (int i = 0; i < names.length; i++) {
+                    text(out, names[i]);
+                    write(out, _jsGet(object, names[i]));
+                }
+            } else if (value instanceof NativeJavaObject) {
+                write(out, ((NativeJavaObject) value).unwrap());
+            } else {
+                Class type = value.getClass();
+                if (type.isArray()) {
+                    int n = java.lang.reflect.Array.getLength(value);
+                    head(out, 4, n);
+                    for (int i = 0; i < n; i++)
+                        write(out, java.lang.reflect.Array.get(value, i));
+                } else {
+                    Codec codec = (Codec) _codecs.get(type);
+                    if (codec == null)
+                        text(out, value.toString());
+                    else
+                        write(out, codec.reflect(value));
+                }
+            }
+        }
+        /**
+         * Write the initial byte of a data item and its argument in the
+         * fewest bytes.
+         */
+        protected static final void head(Writer out, int major, long n)
+        throws IOException {
+            if (out.length + 9 > out.buffer.length)
+                out.drain();
+            major <<= 5;
+            if (n < 24 && n >= 0) {
+                out.buffer[out.length++] = (byte) (major | (int) n);
+            } else if (n < 0x100 && n >= 0) {
+                out.buffer[out.length++] = (byte) (major | 24);
+                raw(out, n, 1);
+            } else if (n < 0x10000 && n >= 0) {
+                out.buffer[out.length++] = (byte) (major | 25);
+                raw(out, n, 2);
+            } else if (n < 0x100000000L && n >= 0) {
+                out.buffer[out.length++] = (byte) (major | 26);
+                raw(out, n, 4);
+            } else {
+                out.buffer[out.length++] = (byte) (major | 27);
+                raw(out, n, 8);
+            }
+        }
+        protected static final void raw(Writer out, long n, int size) {
+            for (int shift = (size - 1) * 8; shift >= 0; shift -= 8)
+                out.buffer[out.length++] = (byte) (n >>> shift);
+        }
+        protected static final void integer(Writer out, long n)
+        throws IOException {
+            if (n < 0)
+                head(out, 1, -1 - n);
+            else
+                head(out, 0, n);
+        }
+        protected static final void integer(Writer out, BigInteger n)
+        throws IOException {
+            if (n.bitLength() < 64) {
+                integer(out, n.longValue());
+                return;
+            }
+            boolean negative = n.signum() < 0;
+            if (negative)
+                n = n.not();
+            if (n.bitLength() <= 64) {
+                head(out, negative ? 1 : 0, n.longValue());
+                return;
+            }
+            byte[] magnitude = n.toByteArray();
+            int off = (magnitude[0] == 0) ? 1 : 0;
+            head(out, 6, negative ? 3 : 2);
+            head(out, 2, magnitude.length - off);
+            for (int i = off; i < magnitude.length; i++)
+                out.ascii((char) (magnitude[i] & 0xff));
+        }
+        /**
+         * Write a text string encoded in UTF-8 with unpaired surrogates
+         * replaced by a question mark, as <code>String.getBytes</code> does.
+         */
+        protected static final void text(Writer out, String s)
+        throws IOException {
+            int n = s.length(), size = n, i;
+            char c;
+            for (i = 0; i < n; i++) {
+                c = s.charAt(i);
+                if (c < 0x80)
+                    continue;
+                else if (c < 0x800)
+                    size += 1;
+                else if (c < 0xd800 || c > 0xdfff)
+                    size += 2;
+                else if (
+                    c < 0xdc00 && i + 1 < n &&
+                    Character.isLowSurrogate(s.charAt(i + 1))
+                    ) {
+                    size += 2;
+                    i++;
+                }
+            }
+            head(out, 3, size);
+            byte[] buffer = out.buffer;
+            for (i = 0; i < n; i++) {
+                if (out.length + 4 > buffer.length)
+                    out.drain();
+                c = s.charAt(i);
+                if (c < 0x80) {
+                    buffer[out.length++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[out.length++] = (byte) (0xc0 | (c >> 6));
+                    buffer[out.length++] = (byte) (0x80 | (c & 0x3f));
+                } else if (c < 0xd800 || c > 0xdfff) {
+                    buffer[out.length++] = (byte) (0xe0 | (c >> 12));
+                    buffer[out.length++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                    buffer[out.length++] = (byte) (0x80 | (c & 0x3f));
+                } else if (
+                    c < 0xdc00 && i + 1 < n &&
+                    Character.isLowSurrogate(s.charAt(i + 1))
+                    ) {
+                    int code = Character.toCodePoint(c, s.charAt(++i));
+                    buffer[out.length++] = (byte) (0xf0 | (code >> 18));
+                    buffer[out.length++] = (byte) (0x80 | ((code >> 12) & 0x3f));
+                    buffer[out.length++] = (byte) (0x80 | ((code >> 6) & 0x3f));
+                    buffer[out.length++] = (byte) (0x80 | (code & 0x3f));
+                } else {
+                    buffer[out.length++] = '?';
+                }
+            }
+        }
+        protected static final void indefinite(Writer out, Iterator it)
+        throws IOException {
+            out.ascii((char) 0x9f);
+            while (it.hasNext())
+                write(out, it.next());
+            out.ascii((char) 0xff);
+        }
+        /**
+         * Decode a slice of bytes as one value, returns a
+         * <code>JSON.Object</code>, <code>JSON.Array</code>,
+         * <code>String</code>, <code>Integer</code>, <code>Long</code>,
+         * <code>BigInteger</code>, <code>BigDecimal</code>,
+         * <code>Double</code>, <code>Boolean</code> or <code>null</code>.
+         *
+         * @param bytes to decode
+         * @param off position of the first byte to decode
+         * @param len number of bytes to decode
+         * @return an untyped Object
+         * @throws JSON.Error
+         */
+        public java.lang.Object read(byte[] bytes, int off, int len)
+        throws Error {
+            return read(ByteBuffer.wrap(bytes, off, len));
+        }
+        /**
+         * Decode the next value in a <code>ByteBuffer</code>, moving its
+         * position after the bytes decoded, so that a series of values
+         * can be read from the same buffer.
+         *
+         * @param bytes to decode
+         * @return an untyped Object
+         * @throws JSON.Error
+         */
+        public java.lang.Object read(ByteBuffer bytes) throws Error {
+            return read(bytes, bytes.position());
+        }
+        /**
+         * Decode the next value in a <code>ByteBuffer</code>, reporting
+         * errors at offsets from the position <code>start</code>.
+         */
+        protected final java.lang.Object read(ByteBuffer bytes, int start)
+        throws Error {
+            this.start = start;
+            try {
+                java.lang.Object value = value(bytes);
+                if (value == STOP)
+                    throw error(bytes, BREAK);
+                return value;
+            } catch (java.nio.BufferUnderflowException e) {
+                throw new JSON.Error(Parser.UNEXPECTED_END, bytes.limit() - start);
+            } catch (IndexOutOfBoundsException e) {
+                throw new JSON.Error(Parser.UNEXPECTED_END, bytes.limit() - start);
+            }
+        }
+        /**
+         * Move the position of a <code>ByteBuffer</code> after the next
+         * value without decoding it, under the same limits on containers
+         * and iterations than <code>read</code>.
+         *
+         * @param bytes to skip a value in
+         * @throws JSON.Error
+         */
+        public final void skip(ByteBuffer bytes) throws Error {
+            skip(bytes, bytes.position());
+        }
+        /**
+         * Skip the next value in a <code>ByteBuffer</code>, reporting
+         * errors at offsets from the position <code>start</code>.
+         */
+        protected final void skip(ByteBuffer bytes, int start) throws Error {
+            this.start = start;
+            try {
+                pass(bytes);
+            } catch (java.nio.BufferUnderflowException e) {
+                throw new JSON.Error(Parser.UNEXPECTED_END, bytes.limit() - start);
+            } catch (IndexOutOfBoundsException e) {
+                throw new JSON.Error(Parser.UNEXPECTED_END, bytes.limit() - start);
+            }
+        }
+        protected final void pass(ByteBuffer bytes) throws Error {
+            int initial, info;
+            do {
+                if (--iterations < 0)
+                    throw error(bytes, Parser.ITERATIONS_OVERFLOW);
+                initial = bytes.get() & 0xff;
+                info = initial & 0x1f;
+                if (initial >> 5 == 6)
+                    argument(bytes, info);
+            } while (initial >> 5 == 6);
+            switch (initial >> 5) {
+            case 0:
+            case 1:
+                argument(bytes, info);
+                return;
+            case 2:
+            case 3:
+                if (info == 31) {
+                    while ((bytes.get(bytes.position()) & 0xff) != 0xff)
+                        pass(bytes);
+                    bytes.get();
+                } else {
+                    int n = count(bytes, info);
+                    bytes.position(bytes.position() + n);
+                }
+                return;
+            case 4:
+            case 5:
+                if (--containers < 0)
+                    throw error(bytes, Parser.CONTAINERS_OVERFLOW);
+                if (info == 31) {
+                    while ((bytes.get(bytes.position()) & 0xff) != 0xff)
+                        pass(bytes);
+                    bytes.get();
+                } else {
+                    long n = count(bytes, info);
+                    if (initial >> 5 == 5)
+                        n *= 2;
+                    for (; n > 0; n--)
+                        pass(bytes);
+                }
+                return;
+            default:
+                if (info > 23 && info < 28) {
+                    if (bytes.remaining() < 1 << (info - 24))
+                        throw new JSON.Error(
+                            Parser.UNEXPECTED_END, bytes.limit() - start
+                            );
+                    bytes.position(bytes.position() + (1 << (info - 24)));
+                } else if (info > 27)
+                    throw error(bytes, UNEXPECTED_TYPE);
+            }
+        }
+        protected final Error error(ByteBuffer bytes, String message) {
+            return new JSON.Error(message, bytes.position() - 1 - start);
+        }
+        protected final long argument(ByteBuffer bytes, int info)
+        throws Error {
+            if (info < 24)
+                return info;
+            switch (info) {
+            case 24: return bytes.get() & 0xffL;
+            case 25: return bytes.getShort() & 0xffffL;
+            case 26: return bytes.getInt() & 0xffffffffL;
+            case 27: return bytes.getLong();
+            default: throw error(bytes, UNEXPECTED_TYPE);
+            }
+        }
+        protected final int count(ByteBuffer bytes, int info) throws Error {
+            long n = argument(bytes, info);
+            if (n < 0 || n > bytes.remaining())
+                throw new JSON.Error(Parser.UNEXPECTED_END, bytes.limit() - start);
+            return (int) n;
+        }
+        protected final java.lang.Object value(ByteBuffer bytes)
+        throws Error {
+            int initial, info;
+            long n;
+            do { // skip the tags not decoded, each one an iteration
+                if (--iterations < 0)
+                    throw error(bytes, Parser.ITERATIONS_OVERFLOW);
+                initial = bytes.get() & 0xff;
+                info = initial & 0x1f;
+                n = (initial >> 5 == 6) ? argument(bytes, info) : 0;
+            } while (initial >> 5 == 6 && (n < 2 || n > 4));
+            switch (initial >> 5) {
+            case 0:
+                n = argument(bytes, info);
+                if (n < 0)
+                    return BigInteger.valueOf(n).add(_unsigned);
+                else if (n <= Integer.MAX_VALUE)
+                    return Integer.valueOf((int) n);
+                else
+                    return Long.valueOf(n);
+            case 1:
+                n = argument(bytes, info);
+                if (n < 0)
+                    return BigInteger.valueOf(n).add(_unsigned).not();
+                else if (n <= Integer.MAX_VALUE)
+                    return Integer.valueOf((int) (-1 - n));
+                else
+                    return Long.valueOf(-1 - n);
+            case 3:
+                if (info == 31) {
+                    StringBuilder sb = new StringBuilder();
+                    while ((bytes.get(bytes.position()) & 0xff) != 0xff) {
+                        initial = bytes.get() & 0xff;
+                        if (initial >> 5 != 3)
+                            throw error(bytes, UNEXPECTED_TYPE);
+                        sb.append(text(bytes, count(bytes, initial & 0x1f)));
+                    }
+                    bytes.get();
+                    return sb.toString();
+                }
+                return text(bytes, count(bytes, info));
+            case 4:
+                if (--containers < 0)
+                    throw error(bytes, Parser.CONTAINERS_OVERFLOW);
+                JSON.Array array;
+                if (info == 31) {
+                    array = new JSON.Array();
+                    java.lang.Object item;
+                    while ((item = value(bytes)) != STOP)
+                        array.add(item);
+                } else {
+                    n = count(bytes, info);
+                    array = new JSON.Array();
+                    array.ensureCapacity((int) n);
+                    for (; n > 0; n--)
+                        array.add(item(bytes));
+                }
+                return array;
+            case 5:
+                if (--containers < 0)
+                    throw error(bytes, Parser.CONTAINERS_OVERFLOW);
+                JSON.Object object = new JSON.Object();
+                java.lang.Object key;
+                if (info == 31) {
+                    while ((key = value(bytes)) != STOP)
+                        object.put(String.valueOf(key), item(bytes));
+                } else {
+                    for (n = count(bytes, info); n > 0; n--) {
+                        key = item(bytes);
+                        object.put(String.valueOf(key), item(bytes));
+                    }
+                }
+                return object;
+            case 6:
+                if (n == 2 || n == 3) {
+                    initial = bytes.get() & 0xff;
+                    if (initial >> 5 != 2)
+                        throw error(bytes, UNEXPECTED_TYPE);
+                    int size = count(bytes, initial & 0x1f);
+                    byte[] magnitude = new byte[size + 1];
+                    bytes.get(magnitude, 1, size);
+                    BigInteger big = new BigInteger(magnitude);
+                    return (n == 2) ? big : big.not();
+                }
+                if ((bytes.get() & 0xff) != 0x82)
+                    throw error(bytes, UNEXPECTED_TYPE);
+                java.lang.Object exponent = item(bytes);
+                java.lang.Object mantissa = item(bytes);
+                if (!(exponent instanceof Integer) || !(
+                    mantissa instanceof Integer ||
+                    mantissa instanceof Long ||
+                    mantissa instanceof BigInteger
+                    ))
+                    throw error(bytes, UNEXPECTED_TYPE);
+                if (!(mantissa instanceof BigInteger))
+                    return BigDecimal.valueOf(
+                        ((Number) mantissa).longValue(), 
+                        -((Integer) exponent).intValue()
+                        );
+                return new BigDecimal(
+                    (BigInteger) mantissa, -((Integer) exponent).intValue()
+                    );
+            case 7:
+                switch (info) {
+                case 20: return Boolean.FALSE;
+                case 21: return Boolean.TRUE;
+                case 22:
+                case 23: return null;
+                case 25: return Double.valueOf(half(bytes.getShort() & 0xffff));
+                case 26: return Double.valueOf(bytes.getFloat());
+                case 27: return Double.valueOf(bytes.getDouble());
+                case 31: return STOP;
+                }
+            }
+            throw error(bytes, UNEXPECTED_TYPE);
+        }
+        protected final java.lang.Object item(ByteBuffer bytes)
+        throws Error {
+            java.lang.Object value = value(bytes);
+            if (value == STOP)
+                throw error(bytes, BREAK);
+            return value;
+        }
+        /**
+         * Decode a text string, ASCII ones without a charset decoder.
+         */
+        protected final String text(ByteBuffer bytes, int size) {
+            if (bytes.hasArray()) {
+                int at = bytes.position();
+                bytes.position(at + size);
+                byte[] in = bytes.array();
+                int off = bytes.arrayOffset() + at;
+                if (chars == null || size > chars.length)
+                    chars = new char[Math.max(size, 64)];
+                char[] out = chars;
+                for (int i = 0, x; i < size; i++) {
+                    if ((x = in[off + i]) < 0)
+                        return Bytes.decode(in, off, size, "UTF-8");
+                    out[i] = (char) x;
+                }
+                return new String(out, 0, size);
+            }
+            if (scratch == null || size > scratch.length)
+                scratch = new byte[Math.max(size, 64)];
+            bytes.get(scratch, 0, size);
+            return Bytes.decode(scratch, 0, size, "UTF-8");
+        }
+        protected static final double half(int bits) {
+            int exponent = (bits >> 10) & 0x1f, mantissa = bits & 0x3ff;
+            double value;
+            if (exponent == 0)
+                value = mantissa * Math.pow(2, -24);
+            else if (exponent != 31)
+                value = (mantissa + 1024) * Math.pow(2, exponent - 25);
+            else
+                value = (mantissa == 0) ? Double.POSITIVE_INFINITY : Double.NaN;
+            return ((bits & 0x8000) != 0) ? -value : value;
+        }
+    }
+
+    /**
+     * A cache of documents encoded in CBOR outside of the heap, in direct
+     * <code>ByteBuffer</code>s, evicted least recently used first when
+     * their total size exceeds a budget of bytes.
+     *
+     * @h3 Synopsis
+     *
+     * @pre JSON.Store store = new JSON.Store(1L << 30);
+     *store.put("catalog", catalog);
+     *JSON.Object view = (JSON.Object) store.get("catalog");
+     *String title = view.getObject("book").getString("title");
+     *
+     * @p Objects and arrays are read through a
+     * <code>JSON.StoredObject</code> or <code>JSON.StoredArray</code>
+     * view, that decodes the members and elements accessed from the
+     * bytes, other values are decoded when got. Views are read-only and
+     * remain valid after their document is evicted or replaced.
+     *
+     * @p Buffers of CBOR bytes can be stored as they are, for instance
+     * slices of a <code>MappedByteBuffer</code> of a file, once checked
+     * to hold one well-formed value. Views skip the stored bytes they do
+     * not decode without limits, whatever the size of the document, and
+     * each value or name they decode is decoded under limits on the 
+     * number of containers and iterations, 65355 by default. Errors are
+     * reported at their offset in the document.
+     */
+    public static class Store {
+        protected LinkedHashMap documents = new LinkedHashMap(16, 0.75f, true);
+        protected long budget;
+        protected long used = 0;
+        protected int containers = 65355;
+        protected int iterations = 65355;
+        /**
+         * Instanciate a store of at most <code>budget</code> bytes.
+         *
+         * @param budget of bytes
+         */
+        public Store(long budget) {
+            this.budget = budget;
+        }
+        /**
+         * Instanciate a store of at most <code>budget</code> bytes, with
+         * the given limits on the number of containers and iterations
+         * of each value or name decoded by its views.
+         *
+         * @param budget of bytes
+         * @param containers a limit on the number of objects and arrays
+         * @param iterations a limit on the total count of values
+         */
+        public Store(long budget, int containers, int iterations) {
+            this.budget = budget;
+            this.containers = containers;
+            this.iterations = iterations;
+        }
+        /**
+         * Encode a value in a new direct buffer and store it.
+         *
+         * @param key of the document
+         * @param value to store
+         */
+        public final void put(String key, java.lang.Object value) {
+            byte[] bytes = CBOR.encode(value);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            buffer.flip();
+            store(key, buffer.asReadOnlyBuffer());
+        }
+        /**
+         * Store the CBOR bytes between the position and the limit of a
+         * buffer, without copying them, after checking that they hold 
+         * one well-formed value.
+         *
+         * @param key of the document
+         * @param cbor bytes of one value
+         * @throws JSON.Error if the bytes are not one well-formed value
+         */
+        public final void put(String key, ByteBuffer cbor) throws Error {
+            ByteBuffer buffer = cbor.slice().asReadOnlyBuffer();
+            ByteBuffer bytes = buffer.duplicate();
+            walker().skip(bytes, 0);
+            if (bytes.hasRemaining())
+                throw new JSON.Error(
+                    Parser.UNEXPECTED_CHARACTER, bytes.position()
+                    );
+
+            store(key, buffer);
+        }
+        protected final synchronized void store(String key, ByteBuffer buffer) {
+            ByteBuffer previous = (ByteBuffer) documents.put(key, buffer);
+            if (previous != null)
+                used -= previous.capacity();
+            used += buffer.capacity();
+            Iterator it = documents.values().iterator();
+            while (used > budget && it.hasNext()) {
+                previous = (ByteBuffer) it.next();
+                if (previous == buffer)
+                    break;
+
+                used -= previous.capacity();
+                it.remove();
+            }
+        }
+        /**
+         * Get a view of a stored object or array, or a stored value.
+         *
+         * @param key of the document
+         * @return a view, a value or <code>null</code>
+         * @throws JSON.Error if the bytes stored are not valid CBOR
+         */
+        public final java.lang.Object get(String key) throws Error {
+            ByteBuffer buffer;
+            synchronized (this) {
+                buffer = (ByteBuffer) documents.get(key);
+            }
+            return (buffer == null) ? null : view(
+                buffer, 0, containers, iterations
+                );
+        }
+        public final synchronized boolean containsKey(String key) {
+            return documents.containsKey(key);
+        }
+        public final synchronized void remove(String key) {
+            ByteBuffer buffer = (ByteBuffer) documents.remove(key);
+            if (buffer != null)
+                used -= buffer.capacity();
+        }
+        public final synchronized void clear() {
+            documents.clear();
+            used = 0;
+        }
+        /**
+         * @return the number of documents stored
+         */
+        public final synchronized int size() {
+            return documents.size();
+        }
+        /**
+         * @return the number of bytes stored
+         */
+        public final synchronized long used() {
+            return used;
+        }
+        /**
+         * Return a view of the object or array at a position in a buffer,
+         * or decode the value there.
+         */
+        protected static final java.lang.Object view(
+            ByteBuffer buffer, int at, int containers, int iterations
+            ) throws Error {
+            switch ((buffer.get(at) & 0xff) >> 5) {
+            case 4: return new StoredArray(buffer, at, containers, iterations);
+            case 5: return new StoredObject(buffer, at, containers, iterations);
+            }
+            ByteBuffer bytes = buffer.duplicate();
+            bytes.position(at);
+            return new CBOR(containers, iterations).read(bytes, 0);
+        }
+        /**
+         * Return a decoder without limits, to skip the values of the
+         * documents checked when stored.
+         */
+        protected static final CBOR walker() {
+            return new CBOR(Integer.MAX_VALUE, Integer.MAX_VALUE);
         }
-        return sb;
     }
-    
+
     /**
-     * Encode an untyped value as a pretty-printed JSON string with
-     * CRLF line delimiters and a two space wide indentation, return 
-     * a <code>String</code> that can safely be encoded in UTF-8.
-     * 
-     * @param value to represent
-     * @return an X-JSON <code>String</code>
+     * A read-only <code>JSON.Object</code> view of a map in a
+     * <code>JSON.Store</code>, that decodes members when they are
+     * accessed by name, and all of them at once by any other method than
+     * <code>get</code>, <code>containsKey</code>, <code>size</code> and
+     * <code>isEmpty</code>.
      */
-    public static final String pprint(java.lang.Object value) {
-        return outline(new StringBuilder(), value, _crlf).toString();
-    }
-    
-    protected static final StringBuilder pprint(
-        StringBuilder sb, Map map, Iterator it, String indent, OutputStream os 
-        ) throws IOException {
-        java.lang.Object key; 
-        if (!it.hasNext()) {
-            sb.append("{}");
-            return sb;
+    public static class StoredObject extends JSON.Object {
+        protected ByteBuffer buffer;
+        protected int at;
+        protected boolean inflated = false;
+        protected int containers;
+        protected int iterations;
+        protected StoredObject(
+            ByteBuffer buffer, int at, int containers, int iterations
+            ) {
+            this.buffer = buffer;
+            this.at = at;
+            this.containers = containers;
+            this.iterations = iterations;
         }
-        indent += _indent;
-        sb.append('{');
-        sb.append(indent);
-        key = it.next();
-        sb = pprint(sb, key, indent, os);
-        sb.append(": ");
-        sb = pprint(sb, map.get(key), indent, os);
-        while (it.hasNext()) {
-            sb.append(", ");
-            sb.append(indent);
-            key = it.next();
-            sb = pprint(sb, key, indent, os);
-            sb.append(": ");
-            sb = pprint(sb, map.get(key), indent, os);
-            if (sb.length() > SIO.netBufferSize) {
-                os.write(Bytes.encode(sb.toString(), "UTF-8"));
-                os.flush();
-                sb = new StringBuilder();
+        /**
+         * Find the position of a member's value, or -1.
+         */
+        protected final int find(java.lang.Object name) throws Error {
+            if (!(name instanceof String))
+                return -1;
+
+            byte[] key = Bytes.encode((String) name, "UTF-8");
+            CBOR walker = Store.walker();
+            CBOR decoder = new CBOR(containers, iterations);
+            ByteBuffer bytes = buffer.duplicate();
+            bytes.position(at);
+            int info = bytes.get() & 0x1f, initial, start;
+            long n = (info == 31) ? -1 : walker.argument(bytes, info);
+            for (; n != 0; n--) {
+                initial = bytes.get(bytes.position()) & 0xff;
+                if (initial == 0xff)
+                    break;
+
+                if (initial >> 5 == 3 && (initial & 0x1f) != 31) {
+                    bytes.get();
+                    int size = walker.count(bytes, initial & 0x1f);
+                    start = bytes.position();
+                    bytes.position(start + size);
+                    if (size == key.length && equals(bytes, start, key))
+                        return bytes.position();
+                } else {
+                    decoder.reset();
+                    if (name.equals(String.valueOf(decoder.read(bytes, 0))))
+                        return bytes.position();
+                }
+                walker.skip(bytes, 0);
             }
+            return -1;
         }
-        sb.append(indent);
-        sb.append('}');
-        return sb;
-    }
-    
-    protected static final StringBuilder pprint(
-        StringBuilder sb, Iterator it, String indent, OutputStream os 
-        ) throws IOException {
-        if (!it.hasNext()) {
-            sb.append("[]");
-            return sb;
+        protected static final boolean equals(
+            ByteBuffer bytes, int start, byte[] key
+            ) {
+            for (int i = 0; i < key.length; i++)
+                if (bytes.get(start + i) != key[i])
+                    return false;
+            return true;
         }
-        sb.append('[');
-        indent += _indent;
-        sb.append(indent);
-        sb = pprint(sb, it.next(), indent, os);
-        while (it.hasNext()) {
-            sb.append(", ");
-            sb.append(indent);
-            sb = pprint(sb, it.next(), indent, os);
-            if (sb.length() > SIO.netBufferSize) {
-                os.write(Bytes.encode(sb.toString(), "UTF-8"));
-                os.flush();
-                sb = new StringBuilder();
+        public java.lang.Object get(java.lang.Object name) {
+            if (inflated)
+                return super.get(name);
+
+            try {
+                int k = find(name);
+                return (k < 0) ? null : Store.view(
+                    buffer, k, containers, iterations
+                    );
+            } catch (JSON.Error e) {
+                throw new RuntimeException(e);
             }
         }
-        sb.append(indent);
-        sb.append(']');
-        return sb;
-    }
-    
-    protected static final StringBuilder pprint(
-        StringBuilder sb, java.lang.Object value, String indent, OutputStream os 
-        ) throws IOException {
-        if (value == null) {
-            sb.append(_null);
-        } else if (value instanceof Boolean) {
-            sb.append(((Boolean) value).booleanValue() ? _true : _false);
-        } else if (value instanceof Number) { 
-            sb.append(trimZero(((Number) value).toString()));
-        } else if (value instanceof String) {
-            strb(sb, (String) value);
-        } else if (value instanceof Character) { 
-            strb(sb, ((Character) value).toString());
-        } else if (value instanceof Native) { 
-            ((Native) value).toJSON(sb, indent);
-        } else if (value instanceof Iterator) { 
-            sb = pprint(sb, (Iterator) value, indent, os);
-        } else if (value instanceof Map) {
-            Map object = (Map) value;
-            java.lang.Object[] names = object.keySet().toArray();
-            Arrays.sort(names);
-            sb = pprint(sb, object, Objects.iter(names), indent, os);
-        } else if (value instanceof Iterable) {
-            sb = pprint(sb, ((Iterable) value).iterator(), indent, os);
-        } else if (value instanceof java.lang.Object[]) {
-            sb = pprint(sb, Objects.iter(
-                (java.lang.Object[]) value
-                ), indent, os);
-        } else if (value instanceof NativeArray) {
-            NativeArray array = (NativeArray) value;
-            java.lang.Object[] ids = (array).getIds();
-            if (ids.length == 0)
-                sb.append(_array);
-            else {
-                java.lang.Object[] list = new java.lang.Object[ids.length]; 
-                for (int i=0; i < ids.length; i++) {
-                    list[i] = array.get(i, array);
-                }
-                pprint(sb, Objects.iter(list), indent, os);
+        public boolean containsKey(java.lang.Object name) {
+            if (inflated)
+                return super.containsKey(name);
+
+            try {
+                return find(name) > -1;
+            } catch (JSON.Error e) {
+                throw new RuntimeException(e);
             }
-        } else if (value instanceof NativeObject) {
-            NativeObject object = (NativeObject) value;
-            java.lang.Object[] ids = NativeObject.getPropertyIds(object);
-            if (ids.length == 0)
-                sb.append(_object);
-            else {
-                String keys[] = new String[ids.length];
-                JSON.Object map = _jsMap (object, ids, keys);
-                pprint(sb, map, Objects.iter((java.lang.Object[])keys), indent, os);
+        }
+        public int size() {
+            int info = buffer.get(at) & 0x1f;
+            if (inflated || info == 31) {
+                inflate(); return super.size();
+            }
+            ByteBuffer bytes = buffer.duplicate();
+            bytes.position(at + 1);
+            try {
+                return (int) new CBOR().argument(bytes, info);
+            } catch (JSON.Error e) {
+                throw new RuntimeException(e);
             }
-        } else if (value instanceof NativeJavaObject) {
-            pprint(sb, ((NativeJavaObject) value).unwrap(), indent, os);
-        } else {
-            Class type = null;
-            try {type = value.getClass();} catch (Throwable e) {;}
-            if (type == null)
-                sb.append(value);
-            else if (type.isArray()) {
-                Class component = type.getComponentType();
-                if (component.isPrimitive())
-                    strb(sb, value, component);
-                else
-                    sb = pprint(sb, Objects.iter(
-                        (java.lang.Object[]) value
-                        ), indent, os);
-            } else
-                sb = pprint(sb, value.toString(), indent, os);
         }
-        return sb;
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+        /**
+         * Decode all members, as views of their objects and arrays.
+         */
+        public final synchronized void inflate() {
+            if (inflated)
+                return;
+
+            CBOR walker = Store.walker();
+            CBOR decoder = new CBOR(containers, iterations);
+            ByteBuffer bytes = buffer.duplicate();
+            bytes.position(at);
+            try {
+                int info = bytes.get() & 0x1f;
+                long n = (info == 31) ? -1 : walker.argument(bytes, info);
+                for (; n != 0; n--) {
+                    if ((bytes.get(bytes.position()) & 0xff) == 0xff)
+                        break;
+
+                    decoder.reset();
+                    java.lang.Object name = decoder.read(bytes, 0);
+                    super.put(String.valueOf(name), Store.view(
+                        buffer, bytes.position(), containers, iterations
+                        ));
+                    walker.skip(bytes, 0);
+                }
+            } catch (JSON.Error e) {
+                throw new RuntimeException(e);
+            }
+            inflated = true;
+        }
+        public boolean containsValue(java.lang.Object value) {
+            inflate(); return super.containsValue(value);
+        }
+        public Set keySet() {
+            inflate(); return Collections.unmodifiableSet(super.keySet());
+        }
+        public Collection values() {
+            inflate(); return Collections.unmodifiableCollection(super.values());
+        }
+        public Set entrySet() {
+            inflate();
+            return Collections.unmodifiableMap(new AbstractMap() {
+                public Set entrySet() {
+                    return StoredObject.super.entrySet();
+                }
+            }).entrySet();
+        }
+        public java.lang.Object clone() {
+            JSON.Object o = new JSON.Object();
+            o.putAll(this);
+            return o;
+        }
+        public java.lang.Object put(java.lang.Object key, java.lang.Object value) {
+            throw new UnsupportedOperationException();
+        }
+        public void putAll(Map map) {
+            throw new UnsupportedOperationException();
+        }
+        public java.lang.Object remove(java.lang.Object key) {
+            throw new UnsupportedOperationException();
+        }
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+        public java.lang.Object putIfAbsent(
+            java.lang.Object key, java.lang.Object value
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public boolean remove(java.lang.Object key, java.lang.Object value) {
+            throw new UnsupportedOperationException();
+        }
+        public java.lang.Object replace(
+            java.lang.Object key, java.lang.Object value
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public boolean replace(
+            java.lang.Object key, java.lang.Object old, java.lang.Object value
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public void replaceAll(BiFunction function) {
+            throw new UnsupportedOperationException();
+        }
+        public java.lang.Object computeIfAbsent(
+            java.lang.Object key, Function function
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public java.lang.Object computeIfPresent(
+            java.lang.Object key, BiFunction function
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public java.lang.Object compute(
+            java.lang.Object key, BiFunction function
+            ) {
+            throw new UnsupportedOperationException();
+        }
+        public java.lang.Object merge(
+            java.lang.Object key, java.lang.Object value, BiFunction function
+            ) {
+            throw new UnsupportedOperationException();
+        }
     }
-    
+
     /**
-     * Encode an untyped value as a pretty-printed JSON string with
-     * CRLF line delimiters and a two space wide indentation, buffer
-     * chunks of 16KB before writing them to an <code>OutputStream</code>.
-     * 
-     * @param value to represent
-     * @return an X-JSON <code>String</code>
+     * A read-only <code>JSON.Array</code> view of an array in a
+     * <code>JSON.Store</code>, that indexes the positions of its elements
+     * when first accessed and decodes them by index, or all of them at
+     * once by any other method than <code>get</code>, <code>size</code>,
+     * <code>isEmpty</code>, <code>iterator</code> and <code>forEach</code>.
      */
-    public static final void pprint(
-        java.lang.Object value, OutputStream os
-        ) throws IOException {
-        StringBuilder sb = pprint(new StringBuilder(), value, "\r\n", os);
-        os.write(Bytes.encode(sb.toString(), "UTF-8"));
-        os.flush();
-    }
+    public static class StoredArray extends JSON.Array {
+        protected ByteBuffer buffer;
+        protected int at;
+        protected int[] offsets = null;
+        protected boolean inflated = false;
+        protected int containers;
+        protected int iterations;
+        protected StoredArray(
+            ByteBuffer buffer, int at, int containers, int iterations
+            ) {
+            this.buffer = buffer;
+            this.at = at;
+            this.containers = containers;
+            this.iterations = iterations;
+        }
+        protected final int[] offsets() {
+            int[] index = offsets;
+            if (index != null)
+                return index;
 
-    protected static final class UTF8Object 
-    implements Iterator<byte[]>, Iterable<byte[]> {
-    	private Map _map;
-    	private String[] _keys = null;
-    	private StringBuilder _sb = new StringBuilder();
-    	private int _index = 0;
-    	public UTF8Object (Map map) {
-    		_map = map;
-    		String[] _keys = (String[]) map.keySet().toArray();
-    		Arrays.sort(_keys);
-    		_sb.append('{');
-    	}
-    	public final boolean hasNext() {
-    		return _index < _keys.length;
-    	}
-    	public final byte[] next() {
-    		String next;
-			strb(_sb, _keys[_index]);
-			_sb.append(':');
-			strb(_sb, _map.get(_keys[_index]));
-			_index++;
-    		if (_index < _keys.length) {
-    			_sb.append(',');
-    			next = _sb.toString();
-    			_sb = new StringBuilder();
-    		} else {
-    			_sb.append('}');
-    			next = _sb.toString();
-    			_sb = null;
-    		}
-    		return Bytes.encode(next, Bytes.UTF8);
-    	}
-    	public final void remove () {}
-    	public final Iterator<byte[]> iterator () {
-    		return this;
-    	}
-    }
-    
-    protected static final class UTF8Array 
-    implements Iterator<byte[]>, Iterable<byte[]> {
-    	private Iterator _items;
-    	private StringBuilder _sb = new StringBuilder();
-    	public UTF8Array (Iterator items) {
-    		_items = items;
-    		_sb.append('[');
-    	}
-    	public final boolean hasNext() {
-    		return _items.hasNext();
-    	}
-    	public final byte[] next() {
-    		String next;
-			strb(_sb, _items.next());
-    		if (_items.hasNext()) {
-    			_sb.append(',');
-    			next = _sb.toString();
-    			_sb = new StringBuilder();
-    		} else {
-    			_sb.append(']');
-    			next = _sb.toString();
-    			_sb = null;
-    		}
-    		return Bytes.encode(next, Bytes.UTF8);
-    	}
-    	public final void remove () {}
-    	public final Iterator<byte[]> iterator () {
-    		return this;
-    	}
-    }
-    private static final java.lang.Object[] _NULL = new byte[][]{
-    	new byte[]{'n', 'u', 'l', 'l'}
-    	};
-    private static final java.lang.Object[] _EMPTY_ARRAY = new byte[][]{
-    	new byte[]{'[', ']'}
-    	};
-    private static final java.lang.Object[] _EMPTY_OBJECT = new byte[][]{
-    	new byte[]{'{', '}'}
-    	};
+            CBOR walker = Store.walker();
+            ByteBuffer bytes = buffer.duplicate();
+            bytes.position(at);
+            try {
+                int info = bytes.get() & 0x1f, k = 0;
+                long n = (info == 31) ? -1 : walker.argument(bytes, info);
+                index = new int[(n < 0) ? 16 : (int) n];
+                for (; n != 0; n--) {
+                    if ((bytes.get(bytes.position()) & 0xff) == 0xff)
+                        break;
+
+                    if (k == index.length) {
+                        int[] grown = new int[k * 2];
+                        System.arraycopy(index, 0, grown, 0, k);
+                        index = grown;
+                    }
+                    index[k++] = bytes.position();
+                    walker.skip(bytes, 0);
+                }
+                if (k < index.length) {
+                    int[] trimmed = new int[k];
+                    System.arraycopy(index, 0, trimmed, 0, k);
+                    index = trimmed;
+                }
+            } catch (JSON.Error e) {
+                throw new RuntimeException(e);
+            }
+            offsets = index;
+            return index;
+        }
+        public java.lang.Object get(int i) {
+            if (inflated)
+                return super.get(i);
+
+            int[] index = offsets();
+            if (i < 0 || i >= index.length)
+                throw new IndexOutOfBoundsException(
+                    "Index: " + i + ", Size: " + index.length
+                    );
+            try {
+                return Store.view(buffer, index[i], containers, iterations);
+            } catch (JSON.Error e) {
+                throw new RuntimeException(e);
+            }
+        }
+        public int size() {
+            return inflated ? super.size() : offsets().length;
+        }
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+        public Iterator iterator() {
+            return new Iterator() {
+                protected int next = 0;
+                public final boolean hasNext() {
+                    return next < size();
+                }
+                public final java.lang.Object next() {
+                    if (next >= size())
+                        throw new NoSuchElementException();
+                    return get(next++);
+                }
+                public final void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+        public void forEach(Consumer action) {
+            for (int i = 0, n = size(); i < n; i++)
+                action.accept(get(i));
+        }
+        public Spliterator spliterator() {
+            inflate(); return super.spliterator();
+        }
+        /**
+         * Decode all elements, as views of their objects and arrays.
+         */
+        public final synchronized void inflate() {
+            if (inflated)
+                return;
+
+            int[] index = offsets();
+            super.ensureCapacity(index.length);
+            try {
+                for (int i = 0; i < index.length; i++)
+                    super.add(Store.view(
+                        buffer, index[i], containers, iterations
+                        ));
+            } catch (JSON.Error e) {
+                throw new RuntimeException(e);
+            }
+            inflated = true;
+        }
+        public int indexOf(java.lang.Object o) {
+            inflate(); return super.indexOf(o);
+        }
+        public int lastIndexOf(java.lang.Object o) {
+            inflate(); return super.lastIndexOf(o);
+        }
+        public boolean contains(java.lang.Object o) {
+            inflate(); return super.contains(o);
+        }
+        public java.lang.Object[] toArray() {
+            inflate(); return super.toArray();
+        }
+        public java.lang.Object[] toArray(java.lang.Object[] array) {
+            inflate(); return super.toArray(array);
+        }
+        public boolean equals(java.lang.Object o) {
+            inflate(); return super.equals(o);
+        }
+        public int hashCode() {
+            inflate(); return super.hashCode();
+        }
+        public ListIterator listIterator() {
+            inflate(); return super.listIterator();
+        }
+        public ListIterator listIterator(int index) {
+            inflate(); return super.listIterator(index);
+        }
+        public List subList(int from, int to) {
+            inflate();
+            return Collections.unmodifiableList(super.subList(from, to));
+        }
+        public java.lang.Object clone() {
+            JSON.Array a = new JSON.Array();
+            a.addAll(this);
+            return a;
+        }
+        public boolean add(java.lang.Object o) {
+            throw new UnsupportedOperationException();
+        }
+        public void add(int index, java.lang.Object o) {
+            throw new UnsupportedOperationException();
+        }
+        public boolean addAll(Collection c) {
+            throw new UnsupportedOperationException();
+        }
+        public boolean addAll(int index, Collection c) {
+            throw new UnsupportedOperationException();
+        }
+        public java.lang.Object set(int index, java.lang.Object o) {
+            throw new UnsupportedOperationException();
+        }
+        public java.lang.Object remove(int index) {
+            throw new UnsupportedOperationException();
+        }
+        public boolean remove(java.lang.Object o) {
+            throw new UnsupportedOperationException();
+        }
+        public boolean removeAll(Collection c) {
+            throw new UnsupportedOperationException();
+        }
+        public boolean retainAll(Collection c) {
+            throw new UnsupportedOperationException();
+        }
+        protected void removeRange(int from, int to) {
+            throw new UnsupportedOperationException();
+        }
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+        public boolean removeIf(Predicate filter) {
+            throw new UnsupportedOperationException();
+        }
+        public void replaceAll(UnaryOperator operator) {
+            throw new UnsupportedOperationException();
+        }
+        public void sort(Comparator comparator) {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
     /**
      * Return an <code>Iterator</code> of bytes that yields the UTF-8 encoded
-     * JSON representation of a given value as follow: by member if the value is a 
-     * <code>Map</code> or a JavaScript native Object instance; by item if the 
-     * value is an <code>Iterator</code>, an <code>Iterable</code>, a JavaScript 
-     * or a Java native Array; at once otherwise.
+     * JSON representation of a given value in chunks of about 
+     * <code>SIO.netBufferSize</code> bytes, serialized only when the next
+     * chunk is asked for.
      * 
      * Usefull to produce large 8-bit bytes JSON strings by chunks and
      * delay the bulk of serialization later (i.e.: in an asynchronous
@@ -2233,60 +10026,20 @@ public final class JSON {
      * @return a <code>Iterator</code> of bytes
      */
     public static final Iterator<byte[]> utf8 (java.lang.Object value) {
-    	if (value == null) {
-    		return Objects.iter(_NULL);
-    	} else if (value instanceof Map) {
-    		return new UTF8Object((Map) value);
-    	} else if (value instanceof Iterator) {
-    		return new UTF8Array(((Iterator) value));
-    	} else if (value instanceof Iterable) {
-    		return new UTF8Array(((Iterable) value).iterator());
-        } else if (value instanceof NativeArray) {
-            NativeArray array = (NativeArray) value;
-            java.lang.Object[] ids = (array).getIds();
-            if (ids.length == 0) {
-            	return Objects.iter(_EMPTY_ARRAY);
-            } else {
-	            java.lang.Object[] list = new java.lang.Object[ids.length]; 
-	            for (int i=0; i < ids.length; i++) {
-	                list[i] = array.get(i, array);
-	            }
-	            return new UTF8Array(Objects.iter(list));
-            }
-        } else if (value instanceof NativeObject) {
-            NativeObject object = (NativeObject) value;
-            java.lang.Object[] ids = NativeObject.getPropertyIds(object);
-            if (ids.length == 0) {
-            	return Objects.iter(_EMPTY_OBJECT);
-            } else {
-                return new UTF8Object(_jsMap(object, ids, new String[ids.length]));
-            }
-        } else if (value instanceof NativeJavaObject) {
-            return utf8(((NativeJavaObject) value).unwrap());
-        } else {
-            Class type = null;
-            try {type = value.getClass();} catch (Throwable e) {;}
-            if (type == null) {
-                return Objects.iter(new java.lang.Object[]{
-            		Bytes.encode(encode(value), Bytes.UTF8)
-            		});
-            } else if (type.isArray()) {
-                Class component = type.getComponentType();
-                if (component.isPrimitive()) {
-                	StringBuilder sb = new StringBuilder(); 
-                    strb(sb, value, component);
-                    return Objects.iter(new java.lang.Object[]{
-                		Bytes.encode(encode(value.toString()), Bytes.UTF8)
-                		});
-                } else {
-                    return utf8(Objects.iter((java.lang.Object[]) value));
-                }
-            } else {
-                return Objects.iter(new java.lang.Object[]{
-            		Bytes.encode(encode(value.toString()), Bytes.UTF8)
-            		});
-            }
-        }
+        return new Chunks(value, SIO.netBufferSize);
+    }
+    
+    /**
+     * Return an <code>Iterator</code> of bytes that yields the UTF-8 encoded
+     * JSON representation of a given value in chunks of at most 
+     * <code>size</code> bytes.
+     * 
+     * @param value to encode
+     * @param size of the chunks
+     * @return a <code>Iterator</code> of bytes
+     */
+    public static final Iterator<byte[]> utf8 (java.lang.Object value, int size) {
+        return new Chunks(value, size);
     }
     
 }
\ No newline at end of file
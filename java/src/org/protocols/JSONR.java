@@ -27,8 +27,8 @@ import java.util.Calendar;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.text.StringCharacterIterator;
 
+import org.simple.Bytes;
 import org.simple.Objects;
 
 /**
@@ -394,7 +394,7 @@ public final class JSONR {
         }
         public final Object eval (String string) 
         throws JSON.Error {
-            return (new Parser(this)).eval(string);
+            return parsers(this).eval(string);
         }
         protected final Iterator iterator() {
             return Objects.iter((Object[])types);
@@ -440,7 +440,7 @@ public final class JSONR {
         }
         public final Object eval (String string) 
         throws JSON.Error {
-            return (new Parser (this)).eval(string);
+            return parsers(this).eval(string);
         }
         public final Pattern copy() {
             if (this == singleton) { 
@@ -497,7 +497,7 @@ public final class JSONR {
         }
         public final Object eval (String string) 
         throws JSON.Error {
-            return (new Parser (this)).eval(string);
+            return parsers(this).eval(string);
         }
         public final Pattern copy() {
             if (this == singleton) { 
@@ -793,22 +793,19 @@ public final class JSONR {
          */
         public final Object eval(String json) 
         throws JSON.Error {
-            buf = new StringBuilder();
-            it = new StringCharacterIterator(json);
+            begin(json);
             try {
                 c = it.first();
                 return value(type);
             } finally {
-                buf = null;
-                it = null;
+                release();
             }
         }
         /**
          * ...
          */
         public final JSON.Error update(Map o, String json) {
-            buf = new StringBuilder();
-            it = new StringCharacterIterator(json);
+            begin(json);
             try {
                 c = it.first();
                 while (Character.isWhitespace(c)) c = it.next();
@@ -830,8 +827,7 @@ public final class JSONR {
             } catch (JSON.Error e){
                 return e;
             } finally {
-                buf = null;
-                it = null;
+                release();
             }
         }
         /**
@@ -841,8 +837,7 @@ public final class JSONR {
             if (!(type instanceof PatternArray))
                 return new Error(JSON.ARRAY_TYPE_ERROR);
             
-            buf = new StringBuilder();
-            it = new StringCharacterIterator(json);
+            begin(json);
             try {
                 c = it.first();
                 while (Character.isWhitespace(c)) c = it.next();
@@ -856,10 +851,47 @@ public final class JSONR {
             } catch (JSON.Error e){
                 return e;
             } finally {
-                buf = null;
-                it = null;
+                release();
             }
         }
+        /**
+         * Decode UTF-8 bytes and evaluate them against this parser's
+         * pattern, the regular interpreter walks characters only.
+         */
+        public final Object eval(byte[] json, int off, int len) 
+        throws JSON.Error {
+            return eval(Bytes.decode(json, off, len, Bytes.UTF8));
+        }
+        /**
+         * Decode <code>len</code> UTF-8 bytes of <code>json</code> from
+         * <code>off</code> and update the map <code>o</code> with the 
+         * members of the object they encode, validated against this 
+         * parser's namespace or dictionary pattern.
+         * 
+         * @param o the map to update
+         * @param json the bytes to decode
+         * @param off the position of the first byte
+         * @param len the number of bytes
+         * @return a <code>JSON.Error</code> or <code>null</code>
+         */
+        public final JSON.Error update(Map o, byte[] json, int off, int len) {
+            return update(o, Bytes.decode(json, off, len, Bytes.UTF8));
+        }
+        /**
+         * Decode <code>len</code> UTF-8 bytes of <code>json</code> from
+         * <code>off</code> and extend the list <code>a</code> with the 
+         * items of the array they encode, validated against this 
+         * parser's array pattern.
+         * 
+         * @param a the list to extend
+         * @param json the bytes to decode
+         * @param off the position of the first byte
+         * @param len the number of bytes
+         * @return a <code>JSON.Error</code> or <code>null</code>
+         */
+        public final JSON.Error extend(List a, byte[] json, int off, int len) {
+            return extend(a, Bytes.decode(json, off, len, Bytes.UTF8));
+        }
         protected final Object value(Pattern type) 
         throws JSON.Error {
             while (Character.isWhitespace(c)) c = it.next();
@@ -1000,7 +1032,7 @@ public final class JSONR {
             Pattern type;
             String name; 
             Object val;
-            Object token = value();
+            Object token = name();
             while (token != OBJECT) {
                 if (!(token instanceof String)) {
                     throw error(STRING_EXPECTED);
@@ -1022,7 +1054,7 @@ public final class JSONR {
                     o.put(name, val);
                     token = value();
                     if (token == COMMA)
-                        token = value();
+                        token = name();
                 } else {
                     throw error(COLON_EXPECTED);
                 }
@@ -1076,6 +1108,28 @@ public final class JSONR {
             return a;
         }
     }
+    protected static final ThreadLocal _parsers = new ThreadLocal() {
+        protected Object initialValue() {
+            return new Parser(null);
+        }
+    };
+    /**
+     * Return the reusable parser of the current thread set to match the 
+     * given pattern with its limits restored, or a new parser if that one 
+     * is already evaluating.
+     * 
+     * @param type the <code>Pattern</code> to match
+     * @return a <code>JSONR.Parser</code>
+     */
+    protected static final Parser parsers(Pattern type) {
+        Parser parser = (Parser) _parsers.get();
+        if (parser.it != null || parser.bytes != null)
+            return new Parser(type);
+        
+        parser.reset();
+        parser.type = type;
+        return parser;
+    }
     public static final Pattern compile(Object regular, Map extensions) {
         Pattern type;
         if (regular == null) {
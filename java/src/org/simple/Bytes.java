@@ -145,6 +145,26 @@ public final class Bytes {
         }
     }
 
+    /**
+     * Try to decode a slice of 8-bit bytes to a UNICODE string using a
+     * named character set or the "default" encoding.
+     * 
+     * @param bytes to decode
+     * @param off position of the first byte to decode
+     * @param len number of bytes to decode
+     * @param encoding to use
+     * @return a UNICODE string
+     */
+    public static final String decode(
+        byte[] bytes, int off, int len, String encoding
+        ) {
+        try {
+            return new String (bytes, off, len, encoding);
+        } catch (UnsupportedEncodingException e) {
+            return new String (bytes, off, len);
+        }
+    }
+
     protected static final class StringsDecoder implements Iterator<String> {
         private Iterator<byte[]> _bytes;
         private String _encoding;